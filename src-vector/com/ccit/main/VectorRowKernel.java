@@ -0,0 +1,120 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于jdk.incubator.vector的按行运算，通道数取本机首选宽度（AVX2为4个double，AVX-512为8个）
+ * 编译与运行都须加 --add-modules jdk.incubator.vector；由RowKernel按类名加载，不可用时不会被引用。
+ * 只对连续存放（cs为1）且不短于两个向量的行按向量计算，其余按标量逐元素计算。
+ * axpy与scale逐元素计算，结果与标量实现逐位相同；distance与sum按通道分别累加后再归约，末位可能不同。
+ */
+public class VectorRowKernel extends RowKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    public String name() {
+        return "vector-" + SPECIES.vectorBitSize();
+    }
+
+    public double distance(double[] x, int off, int cs, double[] c, int num_d) {
+        if(cs == 1 && num_d >= 2 * LANES) {
+            return vectorDistance(x, off, c, num_d);
+        }
+        double sum = 0;
+        for (int k = 0; k < num_d; k++) {
+            double diff = x[off + k * cs] - c[k];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    public void axpy(double w, double[] x, int off, int cs, double[] y, int num_d) {
+        if(cs == 1 && num_d >= 2 * LANES) {
+            vectorAxpy(w, x, off, y, num_d);
+            return;
+        }
+        for (int k = 0; k < num_d; k++) {
+            y[k] += w * x[off + k * cs];
+        }
+    }
+
+    public double sum(double[] u, int n) {
+        if(n >= 2 * LANES) {
+            return vectorSum(u, n);
+        }
+        double sum = 0;
+        for (int j = 0; j < n; j++) {
+            sum += u[j];
+        }
+        return sum;
+    }
+
+    public void scale(double[] u, int n, double f) {
+        if(n >= 2 * LANES) {
+            vectorScale(u, n, f);
+            return;
+        }
+        for (int j = 0; j < n; j++) {
+            u[j] *= f;
+        }
+    }
+
+    // 向量部分单独成方法，使上面的入口足够小，可被内联到各迭代内核中
+
+    private static double vectorDistance(double[] x, int off, double[] c, int num_d) {
+        int bound = SPECIES.loopBound(num_d);
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int k = 0;
+        for (; k < bound; k += LANES) {
+            DoubleVector diff = DoubleVector.fromArray(SPECIES, x, off + k).sub(DoubleVector.fromArray(SPECIES, c, k));
+            acc = diff.fma(diff, acc);
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; k < num_d; k++) {
+            double diff = x[off + k] - c[k];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private static void vectorAxpy(double w, double[] x, int off, double[] y, int num_d) {
+        int bound = SPECIES.loopBound(num_d);
+        int k = 0;
+        for (; k < bound; k += LANES) {
+            DoubleVector.fromArray(SPECIES, x, off + k).mul(w).add(DoubleVector.fromArray(SPECIES, y, k)).intoArray(y, k);
+        }
+        for (; k < num_d; k++) {
+            y[k] += w * x[off + k];
+        }
+    }
+
+    private static double vectorSum(double[] u, int n) {
+        int bound = SPECIES.loopBound(n);
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int j = 0;
+        for (; j < bound; j += LANES) {
+            acc = acc.add(DoubleVector.fromArray(SPECIES, u, j));
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; j < n; j++) {
+            sum += u[j];
+        }
+        return sum;
+    }
+
+    private static void vectorScale(double[] u, int n, double f) {
+        int bound = SPECIES.loopBound(n);
+        int j = 0;
+        for (; j < bound; j += LANES) {
+            DoubleVector.fromArray(SPECIES, u, j).mul(f).intoArray(u, j);
+        }
+        for (; j < n; j++) {
+            u[j] *= f;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ *
+ */
+package com.ccit.bean;
+
+/**
+ * 迭代结束条件
+ * 每次迭代结束时用迭代中已经得到的量检查，阈值为0表示不使用该条件；
+ * 默认只保留原有的 |ΔJ| < 1e-5。需要其他规则时可继承并重写check。
+ */
+public class ConvergencePolicy {
+	public double absJ = 1e-5;			// J的绝对变化阈值
+	public double relJ = 0;				// J的相对变化阈值 |ΔJ|/J
+	public double deltaU = 0;			// 隶属度最大变化 max|ΔU| 阈值
+	public double centerShift = 0;		// 中心最大移动距离阈值
+	public int maxIterations = 0;		// 迭代次数上限，0表示只受iternum限制
+	public long maxMillis = 0;			// 运行时间上限（毫秒）
+
+	/**
+	 * 检查第iter_i次迭代后是否结束
+	 * @param J				各次迭代的目标函数值
+	 * @param iter_i		当前迭代序号
+	 * @param deltaU		本次迭代隶属度的最大变化
+	 * @param shift			本次迭代中心的最大移动距离
+	 * @param elapsed		本次运行已用时间（毫秒）
+	 * @return				结束原因；继续迭代时返回null
+	 */
+	public StopReason check(double[] J, int iter_i, double deltaU, double shift, long elapsed) {
+		if(iter_i > 0) {
+			double dJ = Math.abs(J[iter_i] - J[iter_i - 1]);
+			if(absJ > 0 && dJ < absJ) {
+				return StopReason.ABS_J;
+			}
+			if(relJ > 0 && dJ < relJ * Math.abs(J[iter_i])) {
+				return StopReason.REL_J;
+			}
+			if(this.deltaU > 0 && deltaU < this.deltaU) {
+				return StopReason.DELTA_U;
+			}
+		}
+		return checkCenters(iter_i, shift, elapsed);
+	}
+
+	/**
+	 * 只检查中心移动和迭代次数、时间上限；用于没有全局目标函数值的迭代方式（如小批量）
+	 */
+	public StopReason checkCenters(int iter_i, double shift, long elapsed) {
+		if(iter_i > 0 && centerShift > 0 && shift < centerShift) {
+			return StopReason.CENTER_SHIFT;
+		}
+		if(maxIterations > 0 && iter_i + 1 >= maxIterations) {
+			return StopReason.ITERATIONS;
+		}
+		if(maxMillis > 0 && elapsed >= maxMillis) {
+			return StopReason.TIME;
+		}
+		return null;
+	}
+}
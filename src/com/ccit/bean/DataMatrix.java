@@ -0,0 +1,199 @@
+/**
+ *
+ */
+package com.ccit.bean;
+
+import java.util.List;
+
+/**
+ * 连续存储的 n×d 数据矩阵
+ * 所有数值存放在一个 double[] 中，默认按行存储（row-major），可选按列存储（column-major）。
+ * 元素 (i, k) 位于 values[i*rowStride + k*colStride]。
+ * 单精度存储时数值存放在 fvalues 中（values 为空数组），内存与带宽减半。
+ */
+public class DataMatrix {
+	public static final int ROW_MAJOR = 0;
+	public static final int COLUMN_MAJOR = 1;
+	private static final long MAX_ELEMENTS = Integer.MAX_VALUE - 8;		// 单个数组的最大长度
+
+	public int layout = ROW_MAJOR;
+	public int rows = 0;				// 数据行数 n
+	public int cols = 0;				// 数据维数 d
+	public int rowStride = 0;			// 相邻两行的下标间隔
+	public int colStride = 1;			// 相邻两列的下标间隔
+	public double[] values = new double[0];
+	public boolean single = false;		// 是否单精度存储
+	public float[] fvalues = null;		// 单精度存储时的数值
+
+	public DataMatrix(int rows, int cols) {
+		this(rows, cols, ROW_MAJOR);
+	}
+
+	public DataMatrix(int rows, int cols, int layout) {
+		this(rows, cols, layout, false);
+	}
+
+	public DataMatrix(int rows, int cols, int layout, boolean single) {
+		checkSize(rows, cols);
+		this.layout = layout;
+		this.cols = cols;
+		this.single = single;
+		if (single) {
+			this.fvalues = new float[rows * cols];
+		} else {
+			this.values = new double[rows * cols];
+		}
+		this.rows = rows;
+		updateStrides(rows);
+	}
+
+	/**
+	 * 由行列表构造；维数以第一行为准
+	 */
+	public static DataMatrix fromRows(List<double[]> datas, int layout) {
+		int n = datas.size();
+		int d = n > 0 ? datas.get(0).length : 0;
+		DataMatrix m = new DataMatrix(n, d, layout);
+		for (int i = 0; i < n; i++) {
+			m.setRow(i, datas.get(i));
+		}
+		return m;
+	}
+
+	public double get(int i, int k) {
+		if (single) {
+			return fvalues[i * rowStride + k * colStride];
+		}
+		return values[i * rowStride + k * colStride];
+	}
+
+	public void set(int i, int k, double v) {
+		if (single) {
+			fvalues[i * rowStride + k * colStride] = (float) v;
+		} else {
+			values[i * rowStride + k * colStride] = v;
+		}
+	}
+
+	/** 读取一行到 dest，dest 长度至少为 cols */
+	public double[] getRow(int i, double[] dest) {
+		for (int k = 0; k < cols; k++) {
+			dest[k] = get(i, k);
+		}
+		return dest;
+	}
+
+	public void setRow(int i, double[] row) {
+		for (int k = 0; k < cols; k++) {
+			set(i, k, row[k]);
+		}
+	}
+
+	/**
+	 * 在末尾追加一行（仅限按行存储），容量不足时成倍扩容；
+	 * 逐行读取文件时可直接填充，无需先构造 List<double[]>
+	 */
+	public void addRow(double[] row) {
+		if (layout != ROW_MAJOR) {
+			throw new IllegalStateException("addRow只支持按行存储");
+		}
+		long need = checkSize(rows + 1, cols);
+		if (need > capacity()) {		// 按long计算，翻倍时不溢出，最多扩到数组上限
+			resizeStorage((int) Math.min(MAX_ELEMENTS, Math.max(need, capacity() * 2L)));
+		}
+		rows++;
+		setRow(rows - 1, row);
+	}
+
+	/** rows×cols个元素能否放进一个数组，不能时抛出IllegalArgumentException；返回元素个数 */
+	private static long checkSize(int rows, int cols) {
+		long size = (long) rows * cols;
+		if (size > MAX_ELEMENTS) {
+			throw new IllegalArgumentException("数据矩阵" + rows + "行×" + cols + "列共" + size + "个元素，超出单个数组的上限" + MAX_ELEMENTS);
+		}
+		return size;
+	}
+
+	/**
+	 * 仅保留前 newCols 列（仅限按行存储），就地压缩
+	 */
+	public void truncateCols(int newCols) {
+		if (layout != ROW_MAJOR) {
+			throw new IllegalStateException("truncateCols只支持按行存储");
+		}
+		if (newCols >= cols) {
+			return;
+		}
+		Object storage = single ? (Object) fvalues : values;
+		for (int i = 0; i < rows; i++) {
+			System.arraycopy(storage, i * cols, storage, i * newCols, newCols);
+		}
+		cols = newCols;
+		updateStrides(rows);
+	}
+
+	/** 清空所有行，保留已分配的容量（仅限按行存储），供分块读取时复用 */
+	public void clear() {
+		if (layout != ROW_MAJOR) {
+			throw new IllegalStateException("clear只支持按行存储");
+		}
+		rows = 0;
+	}
+
+	/** 释放多余容量 */
+	public void trimToSize() {
+		if (capacity() > rows * cols) {
+			resizeStorage(rows * cols);
+		}
+	}
+
+	/** 转换为指定存储方式的副本 */
+	public DataMatrix toLayout(int newLayout) {
+		return copy(newLayout, single);
+	}
+
+	/** 转换为指定精度的副本；精度相同时返回自身 */
+	public DataMatrix toPrecision(boolean newSingle) {
+		if (newSingle == single) {
+			return this;
+		}
+		return copy(layout, newSingle);
+	}
+
+	private DataMatrix copy(int newLayout, boolean newSingle) {
+		DataMatrix m = new DataMatrix(rows, cols, newLayout, newSingle);
+		for (int i = 0; i < rows; i++) {
+			for (int k = 0; k < cols; k++) {
+				m.set(i, k, get(i, k));
+			}
+		}
+		return m;
+	}
+
+	private int capacity() {
+		return single ? fvalues.length : values.length;
+	}
+
+	private void resizeStorage(int cap) {
+		int len = Math.min(cap, rows * cols);
+		if (single) {
+			float[] nv = new float[cap];
+			System.arraycopy(fvalues, 0, nv, 0, len);
+			fvalues = nv;
+		} else {
+			double[] nv = new double[cap];
+			System.arraycopy(values, 0, nv, 0, len);
+			values = nv;
+		}
+	}
+
+	private void updateStrides(int n) {
+		if (layout == COLUMN_MAJOR) {
+			rowStride = 1;
+			colStride = n;
+		} else {
+			rowStride = cols;
+			colStride = 1;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/**
+ *
+ */
+package com.ccit.bean;
+
+import java.util.Random;
+
+/**
+ * FCM运行参数
+ * 未设置的项保持默认值。默认值与原有算法的不同之处：隶属度按倒数形式计算（结果与原公式一致），
+ * 初始化默认为FCM++（原有方式为随机隶属度，需要时把init设为INIT_RANDOM）；其余默认值与原有算法行为一致。
+ */
+public class FcmOptions {
+	/**
+	 * 隶属度计算方式
+	 * true:  先算 w_a = d_a^(-2/(m-1))，再归一化，每个点 O(c) 次运算；点与中心重合时显式处理
+	 * false: 原公式 1/Σ(d_j/d_a)^(2/(m-1))，每个点 O(c²) 次运算
+	 */
+	public boolean reciprocal = true;
+
+	public static final int INIT_RANDOM = 0;		// 随机隶属度并归一化（原有方式）
+	public static final int INIT_PLUSPLUS = 1;		// D²加权选取初始中心（FCM++），再由中心得到隶属度
+
+	/** 初始化方式 */
+	public int init = INIT_PLUSPLUS;
+
+	/** FCM++在多少个随机抽取的点上选取中心；0表示使用全部点 */
+	public int seedSample = 0;
+
+	/**
+	 * 初始中心（热启动）；不为null且维数与数据一致时优先于init，行数少于类别数时其余中心按FCM++补齐。
+	 * 只改了指数、迭代次数等参数后重新运行时，以上一次的中心为初值通常几次迭代即可收敛
+	 */
+	public double[][] initCenters = null;
+
+	/**
+	 * 是否计算有效性指标（划分系数PC、划分熵PE，并由此得到Xie-Beni指标），结果见FcmResult；
+	 * FCMAlgorithm.fcm只在迭代次数用完的最后一遍中顺带累加，提前结束时由保存的隶属度另算一遍（不读数据），
+	 * 只保存中心的模式没有保存的隶属度，每次迭代都累加
+	 */
+	public boolean validity = false;
+
+	/** 并行线程数；不大于1时走串行路径 */
+	public int threads = 1;
+
+	/**
+	 * 单遍迭代：每次迭代只扫描一遍数据，同时计算距离、隶属度、目标函数和下一次迭代的中心累加和；
+	 * 不使用距离缓冲区D，数据超出末级缓存时收益明显
+	 */
+	public boolean fused = false;
+
+	/**
+	 * 单精度存储：数据与隶属度U以float存放，中心、距离和各累加和仍用double；
+	 * 内存与带宽减半，总按单遍方式迭代（不使用距离缓冲区D）。
+	 * 数据不是单精度存储时fcm()会先转换一份；直接以单精度读入（DataMatrix.single）可省去这份拷贝。
+	 * 与双精度相比（files/data*cluster.csv，相同初值，m=2、3，c=2、3、5，60次迭代）：J的相对差小于1e-7，中心差小于5e-6，标签完全一致
+	 */
+	public boolean single = false;
+
+	/**
+	 * 稀疏隶属度：每个点只保存最大的topK个隶属度（类号与值，归一化后和为1），内存为O(k·n)而不是O(c·n)；
+	 * 0表示保存全部隶属度。大于0时总按单遍方式迭代，中心与标签都直接由稀疏形式计算
+	 */
+	public int topK = 0;
+
+	/**
+	 * 只保存中心（U-free）：不保存隶属度，每次迭代由当前中心现算各点隶属度并累加下一次的中心，
+	 * 状态只有O(c·d)；优先于single、topK对隶属度存储的选择，总按单遍方式迭代。
+	 * 没有上一次的隶属度可比较，隶属度最大变化（ConvergencePolicy.deltaU）不起作用；
+	 * 标签按最终中心（隶属度最大即距离最近）计算，需要隶属度时用FCMAlgorithm.memberships分块现算
+	 */
+	public boolean centersOnly = false;
+
+	public static final int LAYOUT_AUTO = 0;		// 按类别数与点数自动选择
+	public static final int LAYOUT_CLUSTER = 1;		// 按类优先 U[cluster][point]（原有方式）
+	public static final int LAYOUT_POINT = 2;		// 按点优先 Up[point*c + cluster]，一个点的全部隶属度相邻
+
+	/**
+	 * 稠密双精度隶属度的存放方式；按点优先时总按单遍方式迭代，单点的隶属度更新、标签计算都只读一段连续内存。
+	 * single、topK、centersOnly有各自的存储，不受此项影响
+	 */
+	public int layout = LAYOUT_AUTO;
+
+	/**
+	 * 活动集迭代：完整扫描中隶属度最大变化小于此值的点冻结，之后activeSkip次迭代只计算未冻结的点，
+	 * 中心和按这些点 u^m 的新旧之差增量更新；0表示不使用。只用于稠密双精度隶属度（此时总按点优先存放，
+	 * n·c超出单个数组的上限时只能按类优先，活动集不起作用）。
+	 * 部分扫描的J中冻结点的贡献取自冻结时；按J、隶属度或中心变化判断已收敛时，先做一次完整扫描确认再结束。
+	 * 第一次迭代不冻结；未冻结的点超过一半或已全部冻结时直接做完整扫描。类别数、维数较大时收益明显
+	 */
+	public double activeTol = 0;
+
+	/** 活动集模式下两次完整扫描之间的部分扫描次数 */
+	public int activeSkip = 4;
+
+	/** 小批量模式（MiniBatchFCM）每批的点数 */
+	public int batchSize = 1024;
+
+	/** 小批量模式抽样的总点数相当于扫描数据的遍数，批数为 ceil(batchPasses·n/batchSize) */
+	public int batchPasses = 1;
+
+	/** 流式模式（StreamingFCM）每块读入的行数，内存占用约为 chunkRows·d */
+	public int chunkRows = 1 << 20;
+
+	/** 在线模式（OnlineFCM）的遗忘因子λ，取值(0, 1]：每来一个点，历史权重乘以λ；1表示不遗忘 */
+	public double forgetting = 1.0;
+
+	/** 网格压缩模式（GridFCM）每一维划分的格数 */
+	public int gridBins = 256;
+
+	/** 随机数发生器；为null时使用共享的FCMAlgorithm.randGen，并行的多次运行各自使用独立的发生器 */
+	public Random random = null;
+
+	/** 多次启动（MultiStartFCM）的运行次数 */
+	public int starts = 1;
+
+	/** 多次启动时，目标函数比同一迭代次数下的最优值高出这一比例的运行提前放弃；0表示不放弃 */
+	public double abandonMargin = 0.05;
+
+	/** 多次启动时，前多少次迭代不做放弃判断 */
+	public int abandonAfter = 5;
+
+	/** 迭代结束条件，默认与原算法相同：|ΔJ| < 1e-5 */
+	public ConvergencePolicy stop = new ConvergencePolicy();
+
+	/** 以上一次运行的最终中心热启动；previous为null时取消热启动 */
+	public FcmOptions warmStart(FcmResult previous) {
+		initCenters = previous != null ? previous.centers : null;
+		return this;
+	}
+
+	/** 浅拷贝：各项参数独立，random与stop仍引用同一对象 */
+	public FcmOptions copy() {
+		FcmOptions o = new FcmOptions();
+		o.reciprocal = reciprocal;
+		o.init = init;
+		o.seedSample = seedSample;
+		o.initCenters = initCenters;
+		o.validity = validity;
+		o.threads = threads;
+		o.fused = fused;
+		o.single = single;
+		o.topK = topK;
+		o.centersOnly = centersOnly;
+		o.layout = layout;
+		o.activeTol = activeTol;
+		o.activeSkip = activeSkip;
+		o.batchSize = batchSize;
+		o.batchPasses = batchPasses;
+		o.chunkRows = chunkRows;
+		o.forgetting = forgetting;
+		o.gridBins = gridBins;
+		o.random = random;
+		o.starts = starts;
+		o.abandonMargin = abandonMargin;
+		o.abandonAfter = abandonAfter;
+		o.stop = stop;
+		return o;
+	}
+}
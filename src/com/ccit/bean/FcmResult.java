@@ -0,0 +1,20 @@
+/**
+ *
+ */
+package com.ccit.bean;
+
+/**
+ * 一次FCM运行的结果
+ */
+public class FcmResult {
+	public int iterations = 0;			// 实际迭代次数
+	public double J = 0;				// 最后一次迭代的目标函数值
+	public double[][] centers;			// 最终中心 [clusternum][num_d]
+	public StopReason reason;			// 结束原因
+	public long elapsed = 0;			// 运行时间（毫秒）
+
+	// 有效性指标，仅在opt.validity为true时计算，否则为NaN
+	public double pc = Double.NaN;		// 划分系数 Σu²/n，越大越好
+	public double pe = Double.NaN;		// 划分熵 -Σu·ln(u)/n，越小越好
+	public double xb = Double.NaN;		// Xie-Beni指标 J/(n·min|c_j-c_l|²)，越小越好
+}
@@ -0,0 +1,61 @@
+/**
+ *
+ */
+package com.ccit.bean;
+
+/**
+ * 数据标签：0表示未分类，1..clusternum为类号
+ * 按最大类号选用最窄的基本类型数组：不超过255时每个标签1字节，不超过65535时2字节，否则4字节；
+ * 读写都不装箱，三个数组中只有一个不为null。
+ */
+public class LabelArray {
+	public final int size;				// 标签个数
+	public final byte[] bytes;			// 最大类号不超过255时使用（按无符号读取）
+	public final short[] shorts;		// 最大类号不超过65535时使用（按无符号读取）
+	public final int[] ints;			// 其余情况
+
+	/**
+	 * @param size			标签个数，初始全为0
+	 * @param maxLabel		需要容纳的最大类号，通常为类别数
+	 */
+	public LabelArray(int size, int maxLabel) {
+		this.size = size;
+		bytes = maxLabel <= 0xFF ? new byte[size] : null;
+		shorts = maxLabel > 0xFF && maxLabel <= 0xFFFF ? new short[size] : null;
+		ints = maxLabel > 0xFFFF ? new int[size] : null;
+	}
+
+	public int get(int i) {
+		if(bytes != null) {
+			return bytes[i] & 0xFF;
+		}
+		if(shorts != null) {
+			return shorts[i] & 0xFFFF;
+		}
+		return ints[i];
+	}
+
+	public void set(int i, int label) {
+		if(bytes != null) {
+			bytes[i] = (byte) label;
+		} else if(shorts != null) {
+			shorts[i] = (short) label;
+		} else {
+			ints[i] = label;
+		}
+	}
+
+	/** 能否容纳类号maxLabel；类别数调大后须换用新的标签数组 */
+	public boolean holds(int maxLabel) {
+		return maxLabel <= (bytes != null ? 0xFF : shorts != null ? 0xFFFF : Integer.MAX_VALUE);
+	}
+
+	/** 复制为int数组 */
+	public int[] toArray() {
+		int[] a = new int[size];
+		for (int i = 0; i < size; i++) {
+			a[i] = get(i);
+		}
+		return a;
+	}
+}
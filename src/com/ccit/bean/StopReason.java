@@ -0,0 +1,18 @@
+/**
+ *
+ */
+package com.ccit.bean;
+
+/**
+ * 迭代结束的原因
+ */
+public enum StopReason {
+	ABS_J,				// 目标函数J的绝对变化小于阈值
+	REL_J,				// 目标函数J的相对变化小于阈值
+	DELTA_U,			// 隶属度最大变化小于阈值
+	CENTER_SHIFT,		// 中心最大移动距离小于阈值
+	ITERATIONS,			// 达到迭代次数上限
+	TIME,				// 达到运行时间上限
+	ABANDONED,			// 多次启动时目标函数落后于当前最优，提前放弃
+	CANCELLED			// 被外部终止
+}
@@ -0,0 +1,31 @@
+/**
+ *
+ */
+package com.ccit.bean;
+
+/**
+ * 类别数扫描（ClusterSweep）的结果
+ * results[i]对应类别数 cmin+i；推荐的类别数取Xie-Beni指标最小者
+ */
+public class SweepResult {
+	public int cmin = 0;				// 最小类别数
+	public FcmResult[] results;			// 各类别数的运行结果
+	public int best = 0;				// 推荐的类别数
+
+	/** 类别数c的运行结果 */
+	public FcmResult result(int c) {
+		return results[c - cmin];
+	}
+
+	/** 结果表：每个类别数一行 */
+	public String table() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%4s %6s %14s %8s %8s %12s %8s%n", "c", "iter", "J", "PC", "PE", "XB", "ms"));
+		for (int i = 0; i < results.length; i++) {
+			FcmResult r = results[i];
+			sb.append(String.format("%4d %6d %14.6g %8.4f %8.4f %12.6g %8d%s%n", cmin + i, r.iterations, r.J, 
+					r.pc, r.pe, r.xb, r.elapsed, cmin + i == best ? " *" : ""));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.ccit.bean.DataMatrix;
+import com.ccit.bean.FcmOptions;
+import com.ccit.bean.FcmResult;
+import com.ccit.bean.SweepResult;
+
+/**
+ * 类别数扫描
+ * 对 c = cmin..cmax 各运行一次FCM，每次运行在最后一次迭代中顺带累加划分系数PC、划分熵PE，
+ * 并由目标函数与中心得到Xie-Beni指标，不需要额外扫描数据。
+ * 类别数区间切成最多opt.threads段并行运行；段内按c递增依次运行，
+ * 每个c以c-1的最终中心为初值（热启动），新增的一个中心按D²加权选取。
+ */
+public class ClusterSweep {
+
+    /**
+     * 扫描类别数
+     * @param datas     原始数据
+     * @param cmin      最小类别数，不小于2
+     * @param cmax      最大类别数
+     * @param iternum   每次运行的迭代次数
+     * @param exponent  指数
+     * @param opt       运行参数；分段并行时每次运行内部按单线程执行
+     * @return          各类别数的结果与推荐的类别数；参数无效时返回null
+     */
+    public static SweepResult sweep(DataMatrix datas, int cmin, int cmax, final int iternum, final int exponent, 
+            FcmOptions opt) throws InterruptedException {
+        if(datas == null || datas.rows < 1 || exponent <= 1 || cmin < 2 || cmax < cmin) {
+            return null;
+        }
+        final DataMatrix run_datas = datas.toPrecision(opt.single);      // 只转换一次，各段共用
+        final int count = cmax - cmin + 1;
+        int segments = Math.max(1, Math.min(opt.threads, count));
+        Random random = FCMAlgorithm.random(opt);
+        final SweepResult sweep = new SweepResult();
+        sweep.cmin = cmin;
+        sweep.results = new FcmResult[count];
+        
+        List<Callable<Void>> runs = new ArrayList<Callable<Void>>();
+        for (int s = 0; s < segments; s++) {
+            final int from = cmin + (int) ((long) count * s / segments);
+            final int to = cmin + (int) ((long) count * (s + 1) / segments);
+            final FcmOptions run_opt = opt.copy();
+            run_opt.validity = true;
+            run_opt.initCenters = null;
+            if(segments > 1) {
+                run_opt.threads = 1;
+            }
+            run_opt.random = new Random(random.nextLong());
+            runs.add(new Callable<Void>() {
+                public Void call() {
+                    for (int c = from; c < to; c++) {
+                        FcmResult result = FCMAlgorithm.fcm(run_datas, null, null, c, iternum, exponent, run_opt);
+                        sweep.results[c - sweep.cmin] = result;
+                        run_opt.initCenters = result.centers;
+                    }
+                    return null;
+                }
+            });
+        }
+        
+        if(segments == 1) {
+            try {
+                runs.get(0).call();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(segments);
+            try {
+                for (Future<Void> f : executor.invokeAll(runs)) {
+                    f.get();
+                }
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        
+        // 推荐Xie-Beni指标最小的类别数
+        sweep.best = cmin;
+        for (int i = 1; i < count; i++) {
+            if(sweep.results[i].xb < sweep.result(sweep.best).xb) {
+                sweep.best = cmin + i;
+            }
+        }
+        return sweep;
+    }
+}
@@ -1,202 +1,1341 @@
-/**
- * 
- */
-package com.ccit.main;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
-
-import com.ccit.bean.CenterRooter;
-
-/**
- * @author Huaishao Luo
- * @create 2016年9月15日下午8:13:58
- */
-public class FCMAlgorithm {
-    
-    private static final double E_6 = Math.pow(10.0, -5);
-    public static Random randGen = new Random();
-    
-    public static void main(String[] args) {
-        int data_num = 20;
-        
-        int clusternum = 3;
-        int iternum = 50;
-        int exponent = 3;
-        List<double[]> datas = new ArrayList<double[]>();
-        
-        CenterRooter[] center_rooters = new CenterRooter[clusternum];
-        for (int i = 0; i < clusternum; i++) {
-            CenterRooter center_rooter = new CenterRooter();
-            center_rooters[i] = center_rooter;
-        }
-        
-        for (int i = 0; i < data_num; i++) {
-            double x = (i+1)*5;
-            double y = (i+1)*5;
-            double[] d = new double[2];
-            d[0] = x;
-            d[1] = y;
-            datas.add(d);
-        }
-        for (int i = 0; i < data_num; i++) {
-            double x = (i+1)*5+10;
-            double y = (i+1)*5+10;
-            double[] d = new double[2];
-            d[0] = x;
-            d[1] = y;
-            datas.add(d);
-        }
-        for (int i = 0; i < data_num; i++) {
-            double x = (i+1)*5+15;
-            double y = (i+1)*5+15;
-            double[] d = new double[2];
-            d[0] = x;
-            d[1] = y;
-            datas.add(d);
-        }
-        
-        List<Integer> datas_label = new ArrayList<Integer>();
-        for (int i = 0; i < data_num*3; i++) {
-            datas_label.add(0);
-        }
-        
-        fcm(datas, datas_label, center_rooters, clusternum, iternum, exponent);
-    }
-
-    /**
-     * fcm算法
-     * @param datas         原始数据
-     * @param datas_label   数据标签
-     * @param clusternum    类别数量
-     * @param iternum       迭代次数
-     * @param exponent      指数
-     */
-    public static void fcm(List<double[]> datas, List<Integer> datas_label, CenterRooter[] center_rooters, int clusternum, int iternum, int exponent) {
-        if(datas == null || datas.size() < 1 || exponent <= 1) {
-            return;
-        }
-        int num_data = datas.size();        // 数据行数
-        int num_d = datas.get(0).length;    // 数据维数
-        // 隶属度
-        double[][] U = new double[clusternum][num_data];
-        for (int i = 0; i < clusternum; i++) {
-            for (int j = 0; j < num_data; j++) {    // 随机赋值
-                U[i][j] = randGen.nextDouble()*10;
-            }
-        }
-        
-        for (int j = 0; j < num_data; j++) {        // 归一化
-            double sum_d = 0;
-            for (int i = 0; i < clusternum; i++) {      
-                sum_d += U[i][j];
-            }
-            for (int i = 0; i < clusternum; i++) {      
-                U[i][j] = U[i][j] / sum_d;
-            }
-        }
-        
-        /**循环--规定迭代次数作为结束条件*/
-        double[][] c = new double[clusternum][num_d];
-        double[] J = new double[iternum];
-        for (int iter_i = 0; iter_i < iternum; iter_i++) {
-            boolean brk = OneSteo(datas, center_rooters, clusternum, exponent, num_data, num_d, U, c, J, iter_i);
-            if(brk) {
-                break;
-            }
-        }
-        
-        for (int j = 0; j < num_data; j++) {
-            int index = 0;
-            double max = U[index][j];
-            for (int i = 1; i < clusternum; i++) {
-                if(max < U[i][j]) {
-                    index = i;
-                    max = U[index][j];
-                }
-            }
-            datas_label.set(j, index+1);
-        }
-        
-    }
-
-    /**
-     * @param datas
-     * @param center_rooters
-     * @param clusternum
-     * @param exponent
-     * @param num_data
-     * @param num_d
-     * @param U
-     * @param c
-     * @param J
-     * @param iter_i
-     */
-    public static boolean OneSteo(List<double[]> datas, CenterRooter[] center_rooters, 
-            int clusternum, int exponent, int num_data, int num_d, 
-            double[][] U, double[][] c, double[] J, int iter_i) {
-        
-        /**计算中心值*/
-        for (int j = 0; j < clusternum; j++) {
-            double[] U_ij_m = new double[num_data];
-            double sum_U_ij = 0;
-            for (int i = 0; i < num_data; i++) {
-                U_ij_m[i] = Math.pow(U[j][i], exponent);
-                sum_U_ij += U_ij_m[i];
-            }
-            for (int k = 0; k < num_d; k++) {
-                double sum_c = 0;
-                for (int i = 0; i < num_data; i++) {
-                    sum_c += (U_ij_m[i])*((datas.get(i))[k])/sum_U_ij;
-                }
-                c[j][k] = sum_c;
-            }
-            
-            // 保存中点变动轨迹
-            double[] center = new double[num_d];
-            for (int ii = 0; ii < num_d; ii++) {
-                center[ii] = c[j][ii];
-            }
-            ((center_rooters[j]).li).add(center);
-        }
-        
-        //////////////////////////////////////////////
-        //////////////////////////////////////////////
-        
-        /** 更新U */
-        for (int j = 0; j < clusternum; j++) {
-            for (int k = 0; k < num_data; k++) {
-                double sum1 = 0;
-                for (int j_a = 0; j_a < clusternum; j_a++) {
-                    sum1 += Math.pow((norm(datas, c, k, num_d, j)/norm(datas, c, k, num_d, j_a)), 2/(exponent-1));
-                }
-                U[j][k] = 1/sum1;
-            }
-        }
-        
-        //////////////////////////////////////////////
-        //////////////////////////////////////////////
-        
-        /** 计算目标J函数 */
-        double sum = 0;
-        for (int j = 0; j < clusternum; j++) {
-            for (int k = 0; k < num_data; k++) {
-                sum += Math.pow(U[j][k], exponent)*Math.pow(norm(datas, c, k, num_d, j), 2);
-            }
-        }
-        J[iter_i] = sum;
-        if((iter_i > 0) && (Math.abs(J[iter_i]-J[iter_i-1]) < E_6)) {
-            return true;
-        }
-        return false;
-    }
-    
-    private static double norm(List<double[]> datas, double[][] c, int k, int num_d, int j) {
-        double sum = 0;
-        for (int i = 0; i < num_d; i++) {
-            sum += Math.pow(((datas.get(k)[i]) - c[j][i]),2);
-        }
-        return Math.sqrt(sum);
-    }
-}
+/**
+ * 
+ */
+package com.ccit.main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.ccit.bean.CenterRooter;
+import com.ccit.bean.DataMatrix;
+import com.ccit.bean.FcmOptions;
+import com.ccit.bean.FcmResult;
+import com.ccit.bean.LabelArray;
+import com.ccit.bean.StopReason;
+
+/**
+ * @author Huaishao Luo
+ * @create 2016年9月15日下午8:13:58
+ */
+public class FCMAlgorithm {
+    
+    private static final double E_6 = Math.pow(10.0, -5);
+    public static Random randGen = new Random();
+
+    /** 本次运行使用的随机数发生器：opt.random未设置时使用共享的randGen */
+    public static Random random(FcmOptions opt) {
+        return opt.random != null ? opt.random : randGen;
+    }
+    
+    public static void main(String[] args) {
+        int data_num = 20;
+        
+        int clusternum = 3;
+        int iternum = 50;
+        int exponent = 3;
+        List<double[]> datas = new ArrayList<double[]>();
+        
+        CenterRooter[] center_rooters = new CenterRooter[clusternum];
+        for (int i = 0; i < clusternum; i++) {
+            CenterRooter center_rooter = new CenterRooter();
+            center_rooters[i] = center_rooter;
+        }
+        
+        for (int i = 0; i < data_num; i++) {
+            double x = (i+1)*5;
+            double y = (i+1)*5;
+            double[] d = new double[2];
+            d[0] = x;
+            d[1] = y;
+            datas.add(d);
+        }
+        for (int i = 0; i < data_num; i++) {
+            double x = (i+1)*5+10;
+            double y = (i+1)*5+10;
+            double[] d = new double[2];
+            d[0] = x;
+            d[1] = y;
+            datas.add(d);
+        }
+        for (int i = 0; i < data_num; i++) {
+            double x = (i+1)*5+15;
+            double y = (i+1)*5+15;
+            double[] d = new double[2];
+            d[0] = x;
+            d[1] = y;
+            datas.add(d);
+        }
+        
+        List<Integer> datas_label = new ArrayList<Integer>();
+        for (int i = 0; i < data_num*3; i++) {
+            datas_label.add(0);
+        }
+        
+        fcm(datas, datas_label, center_rooters, clusternum, iternum, exponent);
+    }
+
+    /**
+     * fcm算法
+     * 使用FcmOptions的默认参数，初始化为FCM++，不再是原来的随机隶属度；
+     * 需要原来的初始化时用fcm(DataMatrix, LabelArray, ..., opt)并把opt.init设为FcmOptions.INIT_RANDOM
+     * @param datas         原始数据
+     * @param datas_label   数据标签
+     * @param clusternum    类别数量
+     * @param iternum       迭代次数
+     * @param exponent      指数
+     */
+    public static void fcm(List<double[]> datas, List<Integer> datas_label, CenterRooter[] center_rooters, int clusternum, int iternum, int exponent) {
+        if(datas == null || datas.size() < 1 || exponent <= 1) {
+            return;
+        }
+        LabelArray labels = datas_label != null ? new LabelArray(datas.size(), clusternum) : null;
+        fcm(DataMatrix.fromRows(datas, DataMatrix.ROW_MAJOR), labels, center_rooters, clusternum, iternum, exponent);
+        for (int j = 0; labels != null && j < labels.size; j++) {
+            datas_label.set(j, labels.get(j));
+        }
+    }
+
+    /**
+     * fcm算法，数据连续存放在DataMatrix中
+     * @param datas         原始数据
+     * @param datas_label   数据标签
+     * @param clusternum    类别数量
+     * @param iternum       迭代次数
+     * @param exponent      指数
+     */
+    public static FcmResult fcm(DataMatrix datas, LabelArray datas_label, CenterRooter[] center_rooters, int clusternum, int iternum, int exponent) {
+        return fcm(datas, datas_label, center_rooters, clusternum, iternum, exponent, new FcmOptions());
+    }
+
+    /**
+     * fcm算法，数据连续存放在DataMatrix中
+     * @param datas         原始数据
+     * @param datas_label   数据标签，为null时不计算标签；迭代次数用完时由最后一次迭代计算隶属度的同一遍扫描写入
+     * @param clusternum    类别数量
+     * @param iternum       迭代次数
+     * @param exponent      指数
+     * @param opt           运行参数
+     * @return              运行结果，包括结束原因；参数无效时返回null
+     */
+    public static FcmResult fcm(DataMatrix datas, LabelArray datas_label, CenterRooter[] center_rooters, int clusternum, int iternum, int exponent, FcmOptions opt) {
+        if(datas == null || datas.rows < 1 || exponent <= 1) {
+            return null;
+        }
+        if(datas_label != null && !datas_label.holds(clusternum)) {
+            throw new IllegalArgumentException("标签数组容纳不了类别数" + clusternum);
+        }
+        datas = datas.toPrecision(opt.single);     // 数据精度与本次运行一致
+        int num_data = datas.rows;          // 数据行数
+        int num_d = datas.cols;             // 数据维数
+        FcmWorkspace ws = FcmWorkspace.acquire(num_data, num_d, clusternum, iternum, opt);
+        try {
+            ws.kernel = FcmKernel.forExponent(exponent);     // 按指数选定一次
+            // 隶属度
+            FcmSeeding.initMemberships(datas, ws, opt);
+            int last = (opt.stop.maxIterations > 0 ? Math.min(iternum, opt.stop.maxIterations) : iternum) - 1;
+            // 有效性指标与标签一样只在已知的最后一遍累加；只保存中心时没有保存的隶属度可供事后计算，仍每次累加
+            boolean deferValidity = opt.validity && !ws.centersOnly;
+            FcmOptions iter_opt = opt;
+            if(deferValidity) {
+                iter_opt = opt.copy();
+            }
+            
+            /**循环--规定迭代次数作为结束条件*/
+            int iter_i = 0;
+            boolean labeled = false;
+            boolean validated = !deferValidity;
+            while (iter_i < iternum) {
+                // 迭代次数用完的那一次已知是最后一遍，计算隶属度时顺带写入标签；
+                // 每次都写会让每次迭代多一次取最大，比结束后单独算一遍更慢
+                ws.labels = iter_i == last ? datas_label : null;
+                if(deferValidity) {
+                    iter_opt.validity = iter_i == last;
+                }
+                boolean brk = OneSteo(datas, center_rooters, ws, iter_i, iter_opt);
+                labeled = ws.labels != null;
+                if(deferValidity) {
+                    validated = iter_opt.validity && ws.activeFull;      // 活动集的部分扫描不含冻结点的指标
+                }
+                iter_i++;
+                if(brk) {
+                    break;
+                }
+            }
+            ws.labels = null;
+            
+            for (int j = 0; datas_label != null && !labeled && j < num_data; j++) {     // 提前结束（或没有迭代）时另算一遍
+                datas_label.set(j, label(datas, ws, j)+1);
+            }
+            if(!validated && iter_i > 0) {      // 提前结束时由保存的隶属度计算，不再扫描数据
+                validity(ws, ws.acc);
+            }
+            return ws.result(iter_i);
+        } finally {
+            FcmWorkspace.release(ws);
+        }
+    }
+
+    /**
+     * @param datas
+     * @param center_rooters
+     * @param clusternum
+     * @param exponent
+     * @param num_data
+     * @param num_d
+     * @param U
+     * @param c
+     * @param J
+     * @param iter_i
+     */
+    public static boolean OneSteo(List<double[]> datas, CenterRooter[] center_rooters, 
+            int clusternum, int exponent, int num_data, int num_d, 
+            double[][] U, double[][] c, double[] J, int iter_i) {
+        
+        /**计算中心值*/
+        for (int j = 0; j < clusternum; j++) {
+            double[] U_ij_m = new double[num_data];
+            double sum_U_ij = 0;
+            for (int i = 0; i < num_data; i++) {
+                U_ij_m[i] = Math.pow(U[j][i], exponent);
+                sum_U_ij += U_ij_m[i];
+            }
+            for (int k = 0; k < num_d; k++) {
+                double sum_c = 0;
+                for (int i = 0; i < num_data; i++) {
+                    sum_c += (U_ij_m[i])*((datas.get(i))[k])/sum_U_ij;
+                }
+                c[j][k] = sum_c;
+            }
+            
+            // 保存中点变动轨迹
+            double[] center = new double[num_d];
+            for (int ii = 0; ii < num_d; ii++) {
+                center[ii] = c[j][ii];
+            }
+            ((center_rooters[j]).li).add(center);
+        }
+        
+        //////////////////////////////////////////////
+        //////////////////////////////////////////////
+        
+        /** 更新U */
+        for (int j = 0; j < clusternum; j++) {
+            for (int k = 0; k < num_data; k++) {
+                double sum1 = 0;
+                for (int j_a = 0; j_a < clusternum; j_a++) {
+                    sum1 += Math.pow((norm(datas, c, k, num_d, j)/norm(datas, c, k, num_d, j_a)), 2.0/(exponent-1));
+                }
+                U[j][k] = 1/sum1;
+            }
+        }
+        
+        //////////////////////////////////////////////
+        //////////////////////////////////////////////
+        
+        /** 计算目标J函数 */
+        double sum = 0;
+        for (int j = 0; j < clusternum; j++) {
+            for (int k = 0; k < num_data; k++) {
+                sum += Math.pow(U[j][k], exponent)*Math.pow(norm(datas, c, k, num_d, j), 2);
+            }
+        }
+        J[iter_i] = sum;
+        if((iter_i > 0) && (Math.abs(J[iter_i]-J[iter_i-1]) < E_6)) {
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * 与OneSteo(List...)相同的一次迭代，数据按下标直接访问DataMatrix的连续数组
+     */
+    public static boolean OneSteo(DataMatrix datas, CenterRooter[] center_rooters, 
+            int clusternum, int exponent, int num_data, int num_d, 
+            double[][] U, double[][] c, double[] J, int iter_i) {
+        double[][] D = new double[clusternum][num_data];
+        return OneSteo(datas, center_rooters, clusternum, exponent, num_data, num_d, U, c, D, J, iter_i);
+    }
+
+    /**
+     * 一次迭代；每个点到每个中心的距离只计算一次，存入D供更新U与计算J共用
+     * @param D     距离缓冲区 [clusternum][num_data]，存放距离的平方，可跨迭代复用
+     */
+    public static boolean OneSteo(DataMatrix datas, CenterRooter[] center_rooters, 
+            int clusternum, int exponent, int num_data, int num_d, 
+            double[][] U, double[][] c, double[][] D, double[] J, int iter_i) {
+        FcmOptions opt = new FcmOptions();
+        opt.reciprocal = false;
+        return OneSteo(datas, center_rooters, clusternum, exponent, num_data, num_d, U, c, D, J, iter_i, opt);
+    }
+
+    /**
+     * 一次迭代，隶属度计算方式由opt指定
+     */
+    public static boolean OneSteo(DataMatrix datas, CenterRooter[] center_rooters, 
+            int clusternum, int exponent, int num_data, int num_d, 
+            double[][] U, double[][] c, double[][] D, double[] J, int iter_i, FcmOptions opt) {
+        return OneSteo(datas, center_rooters, clusternum, FcmKernel.forExponent(exponent), num_data, num_d, U, c, D, J, iter_i, opt);
+    }
+
+    /**
+     * 一次迭代，幂运算由调用方预先按指数选定的kernel完成，迭代中不再调用pow
+     * 工作区只用这一次，opt.threads大于1时创建的并行引擎在返回前关闭；反复迭代应取用工作区并调用OneSteo(datas, center_rooters, ws, iter_i, opt)
+     */
+    public static boolean OneSteo(DataMatrix datas, CenterRooter[] center_rooters, 
+            int clusternum, FcmKernel kernel, int num_data, int num_d, 
+            double[][] U, double[][] c, double[][] D, double[] J, int iter_i, FcmOptions opt) {
+        FcmWorkspace ws = FcmWorkspace.wrap(num_data, num_d, clusternum, U, c, D, J);
+        ws.kernel = kernel;
+        try {
+            return OneSteo(datas, center_rooters, ws, iter_i, opt);
+        } finally {
+            ws.shutdownParallel();
+        }
+    }
+
+    /**
+     * 一次迭代，所有缓冲区取自工作区，迭代中不分配内存（center_rooters为null时不记录轨迹）
+     * opt.threads大于1时由工作区中的并行引擎执行；
+     * 迭代后由opt.stop判断是否结束，结束原因记入ws.reason；
+     * opt.single为true时数据须为单精度存储，隶属度取自ws.Uf；稀疏模式下隶属度取自ws.Uidx/Uval；按点优先时取自ws.Up；
+     * 只保存中心的模式下不使用隶属度，迭代0的中心累加和须已由FcmSeeding.initMemberships给出
+     */
+    public static boolean OneSteo(DataMatrix datas, CenterRooter[] center_rooters, FcmWorkspace ws, int iter_i, FcmOptions opt) {
+        if(datas.single != opt.single) {
+            throw new IllegalArgumentException("数据存储精度与opt.single不一致");
+        }
+        ParallelFCM parallel = ws.parallel(opt.threads);
+        if(parallel != null) {
+            parallel.OneSteo(datas, center_rooters, ws, iter_i, opt);
+        } else if(opt.fused || opt.single || ws.topk > 0 || ws.centersOnly || ws.pointMajor) {
+            fusedStep(datas, center_rooters, ws, iter_i, opt);
+        } else {
+            step(datas, center_rooters, ws, iter_i, opt);
+        }
+        ws.reason = opt.stop.check(ws.J, iter_i, ws.deltaU, ws.shift, ws.elapsed());
+        if(ws.activeSet && !ws.activeFull && converged(ws.reason)) {      // 部分扫描的J是近似值，先完整扫描一次确认
+            ws.reason = null;
+            ws.activeWait = 0;
+        }
+        return ws.reason != null;
+    }
+
+    /**
+     * 单遍迭代：中心由上一遍扫描累加的和(ws.num, ws.den)直接得到，
+     * 之后一遍扫描同时完成距离、隶属度、目标函数和下一次的中心累加；单精度、稀疏、按点优先与只保存中心的模式也走这一路径；
+     * 活动集模式的部分扫描只处理未冻结的点，中心和在上一次的基础上增量更新
+     */
+    private static void fusedStep(DataMatrix datas, CenterRooter[] center_rooters, FcmWorkspace ws, int iter_i, FcmOptions opt) {
+        int clusternum = ws.clusternum;
+        int num_d = ws.num_d;
+        if(iter_i == 0 && !ws.centersOnly) {       // 初始隶属度对应的中心累加（只保存中心时已由初始化给出）
+            clearSums(ws.num, ws.den, clusternum, num_d);
+            accumulateCenters(datas, ws, opt, 0, ws.num_data, ws.num, ws.den);
+        }
+        ws.shift = finishCenters(center_rooters, clusternum, num_d, ws.num, ws.den, ws.c);
+        startActive(ws, opt, iter_i);
+        if(ws.activeFull) {     // 部分扫描时num、den保留，按增量更新
+            clearSums(ws.num, ws.den, clusternum, num_d);
+            clearAcc(ws.frozen);
+        }
+        double[] acc = ws.acc;
+        clearAcc(acc);
+        fusedSweep(datas, ws, opt, 0, ws.num_data, ws.num, ws.den, ws.dist, ws.u, ws.top_idx, ws.top_val, acc, ws.frozen);
+        if(ws.activeSet) {
+            mergeAcc(acc, ws.frozen);
+        }
+        ws.J[iter_i] = acc[ACC_J];
+        ws.deltaU = acc[ACC_DU];
+    }
+
+    private static void step(DataMatrix datas, CenterRooter[] center_rooters, FcmWorkspace ws, int iter_i, FcmOptions opt) {
+        int clusternum = ws.clusternum;
+        int num_data = ws.num_data;
+        FcmKernel kernel = ws.kernel;
+        
+        /**计算中心值*/
+        clearSums(ws.num, ws.den, clusternum, ws.num_d);
+        accumulateCenters(datas, ws.U, kernel, clusternum, 0, num_data, ws.num, ws.den);
+        ws.shift = finishCenters(center_rooters, clusternum, ws.num_d, ws.num, ws.den, ws.c);
+        
+        /** 计算距离：每次迭代每个(点, 中心)只算一次 */
+        distances(datas, ws.c, ws.D, clusternum, 0, num_data);
+        
+        /** 更新U */
+        double[] acc = ws.acc;
+        clearAcc(acc);
+        if(opt.reciprocal) {
+            ws.deltaU = membershipsReciprocal(ws.D, ws.U, clusternum, kernel, 0, num_data, ws.u, ws.labels);
+        } else {
+            ws.deltaU = membershipsRatio(ws.D, ws.U, clusternum, kernel, 0, num_data, ws.labels);
+        }
+        
+        /** 计算目标J函数 */
+        objective(ws.U, ws.D, clusternum, kernel, 0, num_data, acc, opt.validity);
+        ws.J[iter_i] = acc[ACC_J];
+    }
+
+    /** 按范围累加的统计量在acc中的位置 */
+    public static final int ACC_J = 0;         // 目标函数部分和
+    public static final int ACC_DU = 1;        // 隶属度最大变化
+    public static final int ACC_PC = 2;        // 划分系数部分和 Σu²
+    public static final int ACC_PE = 3;        // 划分熵部分和 -Σu·ln(u)
+    public static final int ACC_ACTIVE = 4;    // 活动集模式下扫描后仍未冻结的点数
+    public static final int ACC_SIZE = 5;
+
+    static void clearAcc(double[] acc) {
+        for (int i = 0; i < acc.length; i++) {
+            acc[i] = 0;
+        }
+    }
+
+    /** 把块的统计量合并到acc：和相加，最大值取大 */
+    static void mergeAcc(double[] acc, double[] part) {
+        acc[ACC_J] += part[ACC_J];
+        acc[ACC_DU] = Math.max(acc[ACC_DU], part[ACC_DU]);
+        acc[ACC_PC] += part[ACC_PC];
+        acc[ACC_PE] += part[ACC_PE];
+        acc[ACC_ACTIVE] += part[ACC_ACTIVE];
+    }
+
+    /** 各中心两两之间距离平方的最小值 */
+    public static double minCenterDistance(double[][] c, int clusternum, int num_d) {
+        double min = Double.MAX_VALUE;
+        for (int j = 0; j < clusternum; j++) {
+            for (int l = j + 1; l < clusternum; l++) {
+                double sum = 0;
+                for (int k = 0; k < num_d; k++) {
+                    double diff = c[j][k] - c[l][k];
+                    sum += diff * diff;
+                }
+                min = Math.min(min, sum);
+            }
+        }
+        return min;
+    }
+
+    /**
+     * 活动集模式下决定本次迭代是否完整扫描：第一次迭代、上次完整扫描后已做了opt.activeSkip次部分扫描、
+     * 部分扫描判断已收敛需要确认、上一遍扫描后没有未冻结的点（部分扫描无事可做）
+     * 或未冻结的点超过一半（增量更新比完整扫描还慢）时，以及本次要写入标签（ws.labels不为null，部分扫描跳过的点会没有标签）时；
+     * 不使用活动集时总是完整扫描。
+     * 第一次迭代的隶属度变化是相对初值而言的，这一次不冻结任何点。
+     * 须在清零ws.acc之前调用，ws.acc[ACC_ACTIVE]为上一遍扫描后未冻结的点数
+     */
+    static void startActive(FcmWorkspace ws, FcmOptions opt, int iter_i) {
+        if(!ws.activeSet) {
+            ws.activeFull = true;
+            return;
+        }
+        double active = ws.acc[ACC_ACTIVE];
+        ws.activeFull = iter_i == 0 || ws.activeWait <= 0 || active == 0 || active * 2 > ws.num_data || ws.labels != null;
+        ws.activeWait = ws.activeFull ? opt.activeSkip : ws.activeWait - 1;
+        ws.activeTol = iter_i == 0 ? 0 : opt.activeTol;
+    }
+
+    /** 是否因收敛（而不是次数、时间上限或外部原因）结束 */
+    static boolean converged(StopReason reason) {
+        return reason == StopReason.ABS_J || reason == StopReason.REL_J || reason == StopReason.DELTA_U 
+                || reason == StopReason.CENTER_SHIFT;
+    }
+
+    static void clearSums(double[][] num, double[] den, int clusternum, int num_d) {
+        for (int j = 0; j < clusternum; j++) {
+            double[] num_j = num[j];
+            for (int k = 0; k < num_d; k++) {
+                num_j[k] = 0;
+            }
+            den[j] = 0;
+        }
+    }
+    
+    /**
+     * 按工作区中隶属度的存储方式（稀疏、单精度、按点优先、稠密）累加[from, to)范围内各点对中心的贡献
+     */
+    static void accumulateCenters(DataMatrix datas, FcmWorkspace ws, FcmOptions opt, int from, int to, double[][] num, double[] den) {
+        if(ws.topk > 0) {
+            accumulateCentersSparse(datas, ws.Uidx, ws.Uval, ws.topk, ws.kernel, from, to, num, den);
+        } else if(opt.single) {
+            accumulateCenters(datas, ws.Uf, ws.kernel, ws.clusternum, from, to, num, den);
+        } else if(ws.pointMajor) {
+            accumulateCenters(datas, ws.Up, ws.kernel, ws.clusternum, from, to, num, den);
+        } else {
+            accumulateCenters(datas, ws.U, ws.kernel, ws.clusternum, from, to, num, den);
+        }
+    }
+
+    /**
+     * 按工作区中隶属度的存储方式（活动集、只保存中心、稀疏、单精度、按点优先、稠密）单遍扫描[from, to)范围内的点
+     * @param top_idx   稀疏模式下单点的类号缓冲，长度不小于clusternum
+     * @param top_val   稀疏模式下单点的隶属度缓冲，长度不小于clusternum
+     * @param frozen    活动集模式下冻结点的统计量，完整扫描前须清零
+     */
+    static void fusedSweep(DataMatrix datas, FcmWorkspace ws, FcmOptions opt, int from, int to, double[][] num, double[] den, 
+            double[] d, double[] u, int[] top_idx, double[] top_val, double[] acc, double[] frozen) {
+        if(ws.activeSet) {
+            activeSweep(datas, ws.c, ws.Up, ws.active, ws.activeTol, ws.activeFull, ws.kernel, opt.reciprocal, 
+                    ws.clusternum, from, to, num, den, d, u, acc, frozen, opt.validity, ws.labels);
+        } else if(ws.centersOnly) {
+            centerSweep(datas, ws.c, ws.kernel, opt.reciprocal, ws.clusternum, from, to, num, den, d, u, acc, opt.validity, 
+                    ws.labels);
+        } else if(ws.topk > 0) {
+            sparseSweep(datas, ws.c, ws.Uidx, ws.Uval, ws.topk, ws.kernel, opt.reciprocal, ws.clusternum, from, to, 
+                    num, den, d, u, top_idx, top_val, acc, opt.validity, ws.labels);
+        } else if(opt.single) {
+            fusedSweep(datas, ws.c, ws.Uf, ws.kernel, opt.reciprocal, ws.clusternum, from, to, num, den, d, u, acc, opt.validity, 
+                    ws.labels);
+        } else if(ws.pointMajor) {
+            fusedSweep(datas, ws.c, ws.Up, ws.kernel, opt.reciprocal, ws.clusternum, from, to, num, den, d, u, acc, opt.validity, 
+                    ws.labels);
+        } else {
+            fusedSweep(datas, ws.c, ws.U, ws.kernel, opt.reciprocal, ws.clusternum, from, to, num, den, d, u, acc, opt.validity, 
+                    ws.labels);
+        }
+    }
+
+    /**
+     * 累加[from, to)范围内各点对中心的贡献：num[j] += u^m·x，den[j] += u^m
+     * 每个点的数据行只读取一次
+     */
+    public static void accumulateCenters(DataMatrix datas, double[][] U, FcmKernel kernel, int clusternum, 
+            int from, int to, double[][] num, double[] den) {
+        double[] values = datas.values;
+        int rs = datas.rowStride;
+        int cs = datas.colStride;
+        int num_d = datas.cols;
+        RowKernel rows = RowKernel.ACTIVE;
+        for (int i = from; i < to; i++) {
+            int off = i * rs;
+            for (int j = 0; j < clusternum; j++) {
+                double w = kernel.um(U[j][i]);
+                den[j] += w;
+                rows.axpy(w, values, off, cs, num[j], num_d);
+            }
+        }
+    }
+
+    /**
+     * 按点优先存放隶属度的版本：第i点的隶属度为Up[i*clusternum + j]
+     */
+    public static void accumulateCenters(DataMatrix datas, double[] Up, FcmKernel kernel, int clusternum, 
+            int from, int to, double[][] num, double[] den) {
+        double[] values = datas.values;
+        int rs = datas.rowStride;
+        int cs = datas.colStride;
+        int num_d = datas.cols;
+        RowKernel rows = RowKernel.ACTIVE;
+        for (int i = from; i < to; i++) {
+            int off = i * rs;
+            int base = i * clusternum;
+            for (int j = 0; j < clusternum; j++) {
+                double w = kernel.um(Up[base + j]);
+                den[j] += w;
+                rows.axpy(w, values, off, cs, num[j], num_d);
+            }
+        }
+    }
+
+    /**
+     * 单精度版本：数据取自datas.fvalues，隶属度为float，累加和为double
+     */
+    public static void accumulateCenters(DataMatrix datas, float[][] U, FcmKernel kernel, int clusternum, 
+            int from, int to, double[][] num, double[] den) {
+        float[] values = datas.fvalues;
+        int rs = datas.rowStride;
+        int cs = datas.colStride;
+        int num_d = datas.cols;
+        for (int i = from; i < to; i++) {
+            int off = i * rs;
+            for (int j = 0; j < clusternum; j++) {
+                double w = kernel.um(U[j][i]);
+                den[j] += w;
+                double[] num_j = num[j];
+                for (int k = 0; k < num_d; k++) {
+                    num_j[k] += w * values[off + k * cs];
+                }
+            }
+        }
+    }
+
+    /**
+     * 单遍扫描[from, to)范围内的点：对每个点计算到各中心的距离（存入d），得到新隶属度（写入U），
+     * 累加该点对目标函数的贡献，并把 u^m·x、u^m 累加到下一次迭代的中心和num、den中
+     * @param d     单点距离缓冲，长度不小于clusternum
+     * @param u     单点隶属度缓冲，长度不小于clusternum
+     * @param acc   统计量：目标函数值累加到acc[ACC_J]，隶属度最大变化合并到acc[ACC_DU]
+     * @param validity  为true时同时把 Σu²、-Σu·ln(u) 累加到acc[ACC_PC]、acc[ACC_PE]
+     * @param labels    不为null时同时写入各点的标签（隶属度最大的类号+1），不必结束后再扫描一遍U
+     */
+    public static void fusedSweep(DataMatrix datas, double[][] c, double[][] U, FcmKernel kernel, boolean reciprocal, 
+            int clusternum, int from, int to, double[][] num, double[] den, double[] d, double[] u, double[] acc, 
+            boolean validity, LabelArray labels) {
+        double[] values = datas.values;
+        int rs = datas.rowStride;
+        int cs = datas.colStride;
+        int num_d = datas.cols;
+        RowKernel rows = RowKernel.ACTIVE;
+        double sum_J = 0;
+        double sum_pc = 0;
+        double sum_pe = 0;
+        double max_du = acc[ACC_DU];
+        for (int i = from; i < to; i++) {
+            int off = i * rs;
+            for (int j = 0; j < clusternum; j++) {
+                d[j] = rows.distance(values, off, cs, c[j], num_d);
+            }
+            membershipPoint(d, u, clusternum, kernel, reciprocal);
+            for (int j = 0; j < clusternum; j++) {
+                double du = Math.abs(u[j] - U[j][i]);
+                if(du > max_du) {
+                    max_du = du;
+                }
+                U[j][i] = u[j];
+                if(validity && u[j] > 0) {
+                    sum_pc += u[j] * u[j];
+                    sum_pe -= u[j] * Math.log(u[j]);
+                }
+                double w = kernel.um(u[j]);
+                sum_J += w * d[j];
+                den[j] += w;
+                rows.axpy(w, values, off, cs, num[j], num_d);
+            }
+            if(labels != null) {
+                labels.set(i, argmax(u, clusternum)+1);
+            }
+        }
+        acc[ACC_J] += sum_J;
+        acc[ACC_DU] = max_du;
+        acc[ACC_PC] += sum_pc;
+        acc[ACC_PE] += sum_pe;
+    }
+
+    /**
+     * 按点优先存放隶属度的版本：第i点的隶属度读写Up[i*clusternum, (i+1)*clusternum)这一段连续内存，
+     * 不再是c个相距n的位置；计算与按类优先的版本相同，结果逐位一致
+     */
+    public static void fusedSweep(DataMatrix datas, double[][] c, double[] Up, FcmKernel kernel, boolean reciprocal, 
+            int clusternum, int from, int to, double[][] num, double[] den, double[] d, double[] u, double[] acc, 
+            boolean validity, LabelArray labels) {
+        double[] values = datas.values;
+        int rs = datas.rowStride;
+        int cs = datas.colStride;
+        int num_d = datas.cols;
+        RowKernel rows = RowKernel.ACTIVE;
+        double sum_J = 0;
+        double sum_pc = 0;
+        double sum_pe = 0;
+        double max_du = acc[ACC_DU];
+        for (int i = from; i < to; i++) {
+            int off = i * rs;
+            int base = i * clusternum;
+            for (int j = 0; j < clusternum; j++) {
+                d[j] = rows.distance(values, off, cs, c[j], num_d);
+            }
+            membershipPoint(d, u, clusternum, kernel, reciprocal);
+            for (int j = 0; j < clusternum; j++) {
+                double du = Math.abs(u[j] - Up[base + j]);
+                if(du > max_du) {
+                    max_du = du;
+                }
+                Up[base + j] = u[j];
+                if(validity && u[j] > 0) {
+                    sum_pc += u[j] * u[j];
+                    sum_pe -= u[j] * Math.log(u[j]);
+                }
+                double w = kernel.um(u[j]);
+                sum_J += w * d[j];
+                den[j] += w;
+                rows.axpy(w, values, off, cs, num[j], num_d);
+            }
+            if(labels != null) {
+                labels.set(i, argmax(u, clusternum)+1);
+            }
+        }
+        acc[ACC_J] += sum_J;
+        acc[ACC_DU] = max_du;
+        acc[ACC_PC] += sum_pc;
+        acc[ACC_PE] += sum_pe;
+    }
+
+    /**
+     * 活动集模式的单遍扫描，隶属度按点优先存放在Up中
+     * full为true时处理全部点，num、den须已清零；full为false时只处理未冻结的点，
+     * num、den保存着上一次的和，按各点 u^m 的新旧之差增量更新。
+     * 处理过的点中隶属度最大变化小于tol的冻结（tol为0时不冻结），它对目标函数与有效性指标的贡献记入frozen，
+     * 到下一次完整扫描前不再计算，隶属度保持不变；其余点的贡献记入acc，点数累加到acc[ACC_ACTIVE]
+     * @param active    各点是否未冻结
+     * @param frozen    冻结点的统计量，布局同acc，完整扫描前由调用方清零
+     */
+    public static void activeSweep(DataMatrix datas, double[][] c, double[] Up, boolean[] active, double tol, boolean full, 
+            FcmKernel kernel, boolean reciprocal, int clusternum, int from, int to, double[][] num, double[] den, 
+            double[] d, double[] u, double[] acc, double[] frozen, boolean validity, LabelArray labels) {
+        double[] values = datas.values;
+        int rs = datas.rowStride;
+        int cs = datas.colStride;
+        int num_d = datas.cols;
+        RowKernel rows = RowKernel.ACTIVE;
+        double sum_J = 0;
+        double sum_pc = 0;
+        double sum_pe = 0;
+        double max_du = acc[ACC_DU];
+        int sum_active = 0;
+        for (int i = from; i < to; i++) {
+            if(!full && !active[i]) {
+                continue;
+            }
+            int off = i * rs;
+            int base = i * clusternum;
+            for (int j = 0; j < clusternum; j++) {
+                d[j] = rows.distance(values, off, cs, c[j], num_d);
+            }
+            membershipPoint(d, u, clusternum, kernel, reciprocal);
+            double point_du = 0;
+            double point_J = 0;
+            double point_pc = 0;
+            double point_pe = 0;
+            for (int j = 0; j < clusternum; j++) {
+                double old = Up[base + j];
+                double du = Math.abs(u[j] - old);
+                if(du > point_du) {
+                    point_du = du;
+                }
+                Up[base + j] = u[j];
+                if(validity && u[j] > 0) {
+                    point_pc += u[j] * u[j];
+                    point_pe -= u[j] * Math.log(u[j]);
+                }
+                double w = kernel.um(u[j]);
+                point_J += w * d[j];
+                if(!full) {     // 增量：减去旧隶属度的贡献
+                    w -= kernel.um(old);
+                }
+                den[j] += w;
+                rows.axpy(w, values, off, cs, num[j], num_d);
+            }
+            if(point_du > max_du) {
+                max_du = point_du;
+            }
+            if(labels != null) {
+                labels.set(i, argmax(u, clusternum)+1);
+            }
+            active[i] = point_du >= tol;
+            if(active[i]) {
+                sum_active++;
+                sum_J += point_J;
+                sum_pc += point_pc;
+                sum_pe += point_pe;
+            } else {
+                frozen[ACC_J] += point_J;
+                frozen[ACC_PC] += point_pc;
+                frozen[ACC_PE] += point_pe;
+            }
+        }
+        acc[ACC_J] += sum_J;
+        acc[ACC_DU] = max_du;
+        acc[ACC_PC] += sum_pc;
+        acc[ACC_PE] += sum_pe;
+        acc[ACC_ACTIVE] += sum_active;
+    }
+
+    /**
+     * 单精度版本：数据取自datas.fvalues，隶属度以float写回U；
+     * 距离、目标函数与中心累加和都按double计算，u^m取自写回后的隶属度
+     */
+    public static void fusedSweep(DataMatrix datas, double[][] c, float[][] U, FcmKernel kernel, boolean reciprocal, 
+            int clusternum, int from, int to, double[][] num, double[] den, double[] d, double[] u, double[] acc, 
+            boolean validity, LabelArray labels) {
+        float[] values = datas.fvalues;
+        int rs = datas.rowStride;
+        int cs = datas.colStride;
+        int num_d = datas.cols;
+        double sum_J = 0;
+        double sum_pc = 0;
+        double sum_pe = 0;
+        double max_du = acc[ACC_DU];
+        for (int i = from; i < to; i++) {
+            int off = i * rs;
+            for (int j = 0; j < clusternum; j++) {
+                double[] c_j = c[j];
+                double sum = 0;
+                for (int k = 0; k < num_d; k++) {
+                    double diff = values[off + k * cs] - c_j[k];
+                    sum += diff * diff;
+                }
+                d[j] = sum;
+            }
+            membershipPoint(d, u, clusternum, kernel, reciprocal);
+            int index = 0;
+            float max = -1;
+            for (int j = 0; j < clusternum; j++) {
+                float v = (float) u[j];
+                double du = Math.abs(v - U[j][i]);
+                if(du > max_du) {
+                    max_du = du;
+                }
+                U[j][i] = v;
+                if(max < v) {       // 与写回的单精度隶属度比较，和由Uf取最大者一致
+                    index = j;
+                    max = v;
+                }
+                if(validity && v > 0) {
+                    sum_pc += (double) v * v;
+                    sum_pe -= v * Math.log(v);
+                }
+                double w = kernel.um(v);
+                sum_J += w * d[j];
+                den[j] += w;
+                double[] num_j = num[j];
+                for (int k = 0; k < num_d; k++) {
+                    num_j[k] += w * values[off + k * cs];
+                }
+            }
+            if(labels != null) {
+                labels.set(i, index+1);
+            }
+        }
+        acc[ACC_J] += sum_J;
+        acc[ACC_DU] = max_du;
+        acc[ACC_PC] += sum_pc;
+        acc[ACC_PE] += sum_pe;
+    }
+
+    /**
+     * 只保存中心的单遍扫描：各点隶属度由当前中心现算，用于目标函数与下一次的中心累加后即丢弃；
+     * 数据可为单精度或双精度存储。没有旧隶属度可比较，acc[ACC_DU]置为NaN。
+     * 各和直接在acc上接着累加，按顺序分块调用与一次调用的结果逐位相同（MappedFCM依赖这一点）
+     */
+    public static void centerSweep(DataMatrix datas, double[][] c, FcmKernel kernel, boolean reciprocal, int clusternum, 
+            int from, int to, double[][] num, double[] den, double[] d, double[] u, double[] acc, boolean validity, 
+            LabelArray labels) {
+        double sum_J = acc[ACC_J];
+        double sum_pc = acc[ACC_PC];
+        double sum_pe = acc[ACC_PE];
+        for (int i = from; i < to; i++) {
+            pointDistances(datas, i, c, clusternum, d);
+            membershipPoint(d, u, clusternum, kernel, reciprocal);
+            for (int j = 0; j < clusternum; j++) {
+                double v = u[j];
+                if(validity && v > 0) {
+                    sum_pc += v * v;
+                    sum_pe -= v * Math.log(v);
+                }
+                double w = kernel.um(v);
+                sum_J += w * d[j];
+                den[j] += w;
+                addRow(datas, i, w, num[j]);
+            }
+            if(labels != null) {        // 隶属度最大的类即距离最近的中心
+                labels.set(i, argmin(d, clusternum)+1);
+            }
+        }
+        acc[ACC_J] = sum_J;
+        acc[ACC_DU] = Double.NaN;
+        acc[ACC_PC] = sum_pc;
+        acc[ACC_PE] = sum_pe;
+    }
+
+    /**
+     * 由工作区中保存的隶属度计算有效性指标，写入acc[ACC_PC]（Σu²）、acc[ACC_PE]（-Σu·ln(u)）；
+     * 只读隶属度，不访问数据。只保存中心时没有隶属度，不做任何事
+     */
+    public static void validity(FcmWorkspace ws, double[] acc) {
+        if(ws.centersOnly) {
+            return;
+        }
+        double sum_pc = 0;
+        double sum_pe = 0;
+        int num_data = ws.num_data;
+        int clusternum = ws.clusternum;
+        for (int i = 0; i < num_data; i++) {
+            int size = ws.topk > 0 ? ws.topk : clusternum;
+            for (int j = 0; j < size; j++) {
+                double v;
+                if(ws.topk > 0) {
+                    v = ws.Uval[i * ws.topk + j];
+                } else if(ws.pointMajor) {
+                    v = ws.Up[i * clusternum + j];
+                } else if(ws.single) {
+                    v = ws.Uf[j][i];
+                } else {
+                    v = ws.U[j][i];
+                }
+                if(v > 0) {
+                    sum_pc += v * v;
+                    sum_pe -= v * Math.log(v);
+                }
+            }
+        }
+        acc[ACC_PC] = sum_pc;
+        acc[ACC_PE] = sum_pe;
+    }
+
+    /**
+     * 第i个点的标签（从0开始）：按工作区中隶属度的存储方式取隶属度最大的类，相等时取类号小的；
+     * 稀疏模式取保存的第一个；只保存中心时取距离最近的中心（以ws.dist为缓冲）
+     */
+    public static int label(DataMatrix datas, FcmWorkspace ws, int i) {
+        int clusternum = ws.clusternum;
+        if(ws.centersOnly) {       // 隶属度最大的类即距离最近的中心
+            return nearest(datas, i, ws.c, clusternum, ws.dist);
+        }
+        if(ws.topk > 0) {       // 稀疏隶属度按从大到小保存
+            return ws.Uidx[i * ws.topk];
+        }
+        int index = 0;
+        if(ws.pointMajor) {
+            double[] Up = ws.Up;
+            int base = i * clusternum;
+            for (int j = 1; j < clusternum; j++) {
+                if(Up[base + index] < Up[base + j]) {
+                    index = j;
+                }
+            }
+        } else if(ws.single) {
+            float[][] Uf = ws.Uf;
+            for (int j = 1; j < clusternum; j++) {
+                if(Uf[index][i] < Uf[j][i]) {
+                    index = j;
+                }
+            }
+        } else {
+            double[][] U = ws.U;
+            for (int j = 1; j < clusternum; j++) {
+                if(U[index][i] < U[j][i]) {
+                    index = j;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 按给定中心现算[from, to)范围内各点的隶属度，写入U[j][i-from]（倒数形式）；
+     * 可分块调用，用于只保存中心的模式结束后按需输出隶属度
+     * @param U     [clusternum][to-from]
+     */
+    public static void memberships(DataMatrix datas, double[][] centers, int exponent, int from, int to, double[][] U) {
+        int clusternum = centers.length;
+        FcmKernel kernel = FcmKernel.forExponent(exponent);
+        double[] d = new double[clusternum];
+        double[] u = new double[clusternum];
+        for (int i = from; i < to; i++) {
+            pointDistances(datas, i, centers, clusternum, d);
+            membershipPoint(d, u, clusternum, kernel, true);
+            for (int j = 0; j < clusternum; j++) {
+                U[j][i - from] = u[j];
+            }
+        }
+    }
+
+    /**
+     * 第i个点距离最近的中心的下标
+     * @param d     距离缓冲，长度不小于clusternum
+     */
+    public static int nearest(DataMatrix datas, int i, double[][] c, int clusternum, double[] d) {
+        pointDistances(datas, i, c, clusternum, d);
+        return argmin(d, clusternum);
+    }
+
+    /** d[0..clusternum)中最小值的下标，相等时取小的 */
+    static int argmin(double[] d, int clusternum) {
+        int index = 0;
+        for (int j = 1; j < clusternum; j++) {
+            if(d[j] < d[index]) {
+                index = j;
+            }
+        }
+        return index;
+    }
+
+    /** u[0..clusternum)中最大值的下标，相等时取小的 */
+    static int argmax(double[] u, int clusternum) {
+        int index = 0;
+        for (int j = 1; j < clusternum; j++) {
+            if(u[index] < u[j]) {
+                index = j;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 稀疏隶属度版本：只累加每个点保存的topk个隶属度
+     */
+    public static void accumulateCentersSparse(DataMatrix datas, int[] Uidx, double[] Uval, int topk, FcmKernel kernel, 
+            int from, int to, double[][] num, double[] den) {
+        for (int i = from; i < to; i++) {
+            int base = i * topk;
+            for (int t = 0; t < topk; t++) {
+                int j = Uidx[base + t];
+                double w = kernel.um(Uval[base + t]);
+                den[j] += w;
+                addRow(datas, i, w, num[j]);
+            }
+        }
+    }
+
+    /**
+     * 稀疏隶属度的单遍扫描：每个点按全部中心算出隶属度后只保留最大的topk个并重新归一化，
+     * 目标函数与下一次的中心累加只用保留的隶属度；隶属度的变化按类号对齐比较（未保存的视为0），
+     * 对齐时借用u作为该点旧隶属度的稠密行，代价为O(c+k)
+     * @param top_idx   单点的类号缓冲，长度不小于clusternum
+     * @param top_val   单点的隶属度缓冲，长度不小于clusternum
+     */
+    public static void sparseSweep(DataMatrix datas, double[][] c, int[] Uidx, double[] Uval, int topk, FcmKernel kernel, 
+            boolean reciprocal, int clusternum, int from, int to, double[][] num, double[] den, double[] d, double[] u, 
+            int[] top_idx, double[] top_val, double[] acc, boolean validity, LabelArray labels) {
+        double sum_J = 0;
+        double sum_pc = 0;
+        double sum_pe = 0;
+        double max_du = acc[ACC_DU];
+        for (int i = from; i < to; i++) {
+            pointDistances(datas, i, c, clusternum, d);
+            membershipPoint(d, u, clusternum, kernel, reciprocal);
+            selectTop(u, clusternum, topk, top_idx, top_val);
+            int base = i * topk;
+            for (int j = 0; j < clusternum; j++) {      // u改存旧的隶属度
+                u[j] = 0;
+            }
+            for (int s = 0; s < topk; s++) {
+                u[Uidx[base + s]] = Uval[base + s];
+            }
+            for (int t = 0; t < topk; t++) {
+                int j = top_idx[t];
+                double v = top_val[t];
+                double du = Math.abs(v - u[j]);
+                if(du > max_du) {
+                    max_du = du;
+                }
+                u[j] = 0;
+                if(validity && v > 0) {
+                    sum_pc += v * v;
+                    sum_pe -= v * Math.log(v);
+                }
+                double w = kernel.um(v);
+                sum_J += w * d[j];
+                den[j] += w;
+                addRow(datas, i, w, num[j]);
+            }
+            for (int s = 0; s < topk; s++) {        // 不再保留的旧隶属度
+                double du = u[Uidx[base + s]];
+                if(du > max_du) {
+                    max_du = du;
+                }
+            }
+            System.arraycopy(top_idx, 0, Uidx, base, topk);
+            System.arraycopy(top_val, 0, Uval, base, topk);
+            if(labels != null) {
+                labels.set(i, top_idx[0]+1);
+            }
+        }
+        acc[ACC_J] += sum_J;
+        acc[ACC_DU] = max_du;
+        acc[ACC_PC] += sum_pc;
+        acc[ACC_PE] += sum_pe;
+    }
+
+    /**
+     * num_j += w·(第i行)；数据可为单精度或双精度存储
+     */
+    public static void addRow(DataMatrix datas, int i, double w, double[] num_j) {
+        int off = i * datas.rowStride;
+        int cs = datas.colStride;
+        int num_d = datas.cols;
+        if(datas.single) {
+            float[] values = datas.fvalues;
+            for (int k = 0; k < num_d; k++) {
+                num_j[k] += w * values[off + k * cs];
+            }
+        } else {
+            RowKernel.ACTIVE.axpy(w, datas.values, off, cs, num_j, num_d);
+        }
+    }
+
+    /**
+     * 从u的前clusternum个隶属度中选出最大的topk个，按从大到小写入idx、val，并归一化使其和为1
+     */
+    public static void selectTop(double[] u, int clusternum, int topk, int[] idx, double[] val) {
+        int n = 0;
+        for (int j = 0; j < clusternum; j++) {
+            double v = u[j];
+            if(n == topk && v <= val[n - 1]) {
+                continue;
+            }
+            int t = n < topk ? n++ : n - 1;
+            while (t > 0 && val[t - 1] < v) {       // 插入排序，topk很小
+                val[t] = val[t - 1];
+                idx[t] = idx[t - 1];
+                t--;
+            }
+            val[t] = v;
+            idx[t] = j;
+        }
+        double sum = 0;
+        for (int t = 0; t < topk; t++) {
+            sum += val[t];
+        }
+        double inv = 1/sum;
+        for (int t = 0; t < topk; t++) {
+            val[t] *= inv;
+        }
+    }
+
+    /**
+     * 由单个点到各中心的距离平方d计算其隶属度u，公式与membershipsReciprocal/membershipsRatio相同
+     */
+    public static void membershipPoint(double[] d, double[] u, int clusternum, FcmKernel kernel, boolean reciprocal) {
+        if(!reciprocal) {
+            for (int j = 0; j < clusternum; j++) {
+                double sum1 = 0;
+                for (int j_a = 0; j_a < clusternum; j_a++) {
+                    sum1 += kernel.ratio(d[j]/d[j_a]);
+                }
+                u[j] = 1/sum1;
+            }
+            return;
+        }
+        int zeros = 0;
+        for (int j = 0; j < clusternum; j++) {
+            if(d[j] == 0) {
+                zeros++;
+            }
+        }
+        if(zeros > 0) {
+            double v = 1.0/zeros;
+            for (int j = 0; j < clusternum; j++) {
+                u[j] = d[j] == 0 ? v : 0;
+            }
+            return;
+        }
+        for (int j = 0; j < clusternum; j++) {
+            u[j] = kernel.weight(d[j]);
+        }
+        RowKernel rows = RowKernel.ACTIVE;
+        rows.scale(u, clusternum, 1/rows.sum(u, clusternum));
+    }
+
+    /**
+     * 由累加结果得到中心 c = num/den，并保存中心移动轨迹（center_rooters可为null）
+     * @return  各中心移动距离的最大值
+     */
+    public static double finishCenters(CenterRooter[] center_rooters, int clusternum, int num_d, double[][] num, double[] den, double[][] c) {
+        double max_shift = 0;
+        for (int j = 0; j < clusternum; j++) {
+            double[] num_j = num[j];
+            double[] c_j = c[j];
+            double shift = 0;
+            for (int k = 0; k < num_d; k++) {
+                double v = num_j[k] / den[j];
+                double diff = v - c_j[k];
+                shift += diff * diff;
+                c_j[k] = v;
+            }
+            if(shift > max_shift) {
+                max_shift = shift;
+            }
+            
+            // 保存中点变动轨迹
+            if(center_rooters != null) {
+                double[] center = new double[num_d];
+                for (int ii = 0; ii < num_d; ii++) {
+                    center[ii] = c_j[ii];
+                }
+                ((center_rooters[j]).li).add(center);
+            }
+        }
+        return Math.sqrt(max_shift);
+    }
+
+    /**
+     * 计算[from, to)范围内各点到各中心距离的平方，写入D[j][i]
+     */
+    public static void distances(DataMatrix datas, double[][] c, double[][] D, int clusternum, int from, int to) {
+        double[] values = datas.values;
+        int rs = datas.rowStride;
+        int cs = datas.colStride;
+        int num_d = datas.cols;
+        RowKernel rows = RowKernel.ACTIVE;
+        for (int i = from; i < to; i++) {
+            int off = i * rs;
+            for (int j = 0; j < clusternum; j++) {
+                D[j][i] = rows.distance(values, off, cs, c[j], num_d);
+            }
+        }
+    }
+    
+    /**
+     * 第i个点到各中心距离的平方，写入d；数据可为单精度或双精度存储
+     */
+    public static void pointDistances(DataMatrix datas, int i, double[][] c, int clusternum, double[] d) {
+        for (int j = 0; j < clusternum; j++) {
+            d[j] = pointDistance(datas, i, c[j]);
+        }
+    }
+
+    /**
+     * 第i个点到中心c_j距离的平方
+     */
+    public static double pointDistance(DataMatrix datas, int i, double[] c_j) {
+        int off = i * datas.rowStride;
+        int cs = datas.colStride;
+        int num_d = datas.cols;
+        double sum = 0;
+        if(datas.single) {
+            float[] values = datas.fvalues;
+            for (int k = 0; k < num_d; k++) {
+                double diff = values[off + k * cs] - c_j[k];
+                sum += diff * diff;
+            }
+        } else {
+            sum = RowKernel.ACTIVE.distance(datas.values, off, cs, c_j, num_d);
+        }
+        return sum;
+    }
+    
+    /**
+     * 原公式更新[from, to)范围内的隶属度：U_j = 1/Σ(d_j/d_a)^(2/(m-1)) = 1/Σ(D_j/D_a)^(1/(m-1))
+     * @return  隶属度的最大变化 max|ΔU|
+     */
+    public static double membershipsRatio(double[][] D, double[][] U, int clusternum, FcmKernel kernel, int from, int to) {
+        return membershipsRatio(D, U, clusternum, kernel, from, to, null);
+    }
+
+    /**
+     * 同上，labels不为null时同时写入各点的标签（隶属度最大的类号+1）
+     */
+    public static double membershipsRatio(double[][] D, double[][] U, int clusternum, FcmKernel kernel, int from, int to, 
+            LabelArray labels) {
+        double max_du = 0;
+        for (int k = from; k < to; k++) {
+            int index = 0;
+            double max = -1;
+            for (int j = 0; j < clusternum; j++) {
+                double d_j = D[j][k];
+                double sum1 = 0;
+                for (int j_a = 0; j_a < clusternum; j_a++) {
+                    sum1 += kernel.ratio(d_j/D[j_a][k]);
+                }
+                double v = 1/sum1;
+                double du = Math.abs(v - U[j][k]);
+                if(du > max_du) {
+                    max_du = du;
+                }
+                U[j][k] = v;
+                if(max < v) {
+                    index = j;
+                    max = v;
+                }
+            }
+            if(labels != null) {
+                labels.set(k, index+1);
+            }
+        }
+        return max_du;
+    }
+
+    /**
+     * 倒数形式更新[from, to)范围内的隶属度：w_a = D_a^(-1/(m-1))，U_a = w_a/Σw
+     * 点与若干中心重合（D=0）时，隶属度在这些中心间均分，其余为0
+     * @param w     单点权重缓冲，长度不小于clusternum
+     * @return      隶属度的最大变化 max|ΔU|
+     */
+    public static double membershipsReciprocal(double[][] D, double[][] U, int clusternum, FcmKernel kernel, int from, int to, double[] w) {
+        return membershipsReciprocal(D, U, clusternum, kernel, from, to, w, null);
+    }
+
+    /**
+     * 同上，labels不为null时同时写入各点的标签（隶属度最大的类号+1）
+     */
+    public static double membershipsReciprocal(double[][] D, double[][] U, int clusternum, FcmKernel kernel, int from, int to, 
+            double[] w, LabelArray labels) {
+        double max_du = 0;
+        for (int k = from; k < to; k++) {
+            int zeros = 0;
+            double sum_w = 0;
+            for (int j = 0; j < clusternum; j++) {
+                double d_j = D[j][k];
+                if(d_j == 0) {
+                    zeros++;
+                    w[j] = 1;
+                } else {
+                    w[j] = kernel.weight(d_j);
+                    sum_w += w[j];
+                }
+            }
+            if(zeros > 0) {
+                for (int j = 0; j < clusternum; j++) {
+                    w[j] = D[j][k] == 0 ? 1 : 0;
+                }
+                sum_w = zeros;
+            }
+            double inv = 1/sum_w;
+            int index = 0;
+            double max = -1;
+            for (int j = 0; j < clusternum; j++) {
+                double v = w[j] * inv;
+                double du = Math.abs(v - U[j][k]);
+                if(du > max_du) {
+                    max_du = du;
+                }
+                U[j][k] = v;
+                if(max < v) {
+                    index = j;
+                    max = v;
+                }
+            }
+            if(labels != null) {
+                labels.set(k, index+1);
+            }
+        }
+        return max_du;
+    }
+
+    /**
+     * [from, to)范围内的目标函数值 Σ U^m·D
+     */
+    public static double objective(double[][] U, double[][] D, int clusternum, FcmKernel kernel, int from, int to) {
+        double sum = 0;
+        for (int j = 0; j < clusternum; j++) {
+            double[] U_j = U[j];
+            double[] D_j = D[j];
+            for (int k = from; k < to; k++) {
+                sum += kernel.um(U_j[k])*D_j[k];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * [from, to)范围内的目标函数值累加到acc[ACC_J]；validity为true时同时累加 Σu²、-Σu·ln(u)
+     */
+    public static void objective(double[][] U, double[][] D, int clusternum, FcmKernel kernel, int from, int to, 
+            double[] acc, boolean validity) {
+        acc[ACC_J] += objective(U, D, clusternum, kernel, from, to);
+        if(!validity) {
+            return;
+        }
+        double pc = 0;
+        double pe = 0;
+        for (int j = 0; j < clusternum; j++) {
+            double[] U_j = U[j];
+            for (int k = from; k < to; k++) {
+                double v = U_j[k];
+                if(v > 0) {
+                    pc += v * v;
+                    pe -= v * Math.log(v);
+                }
+            }
+        }
+        acc[ACC_PC] += pc;
+        acc[ACC_PE] += pe;
+    }
+    
+    private static double norm(List<double[]> datas, double[][] c, int k, int num_d, int j) {
+        double sum = 0;
+        for (int i = 0; i < num_d; i++) {
+            sum += Math.pow(((datas.get(k)[i]) - c[j][i]),2);
+        }
+        return Math.sqrt(sum);
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+/**
+ * 整数指数m对应的幂运算内核，每次运行开始时按m选择一次
+ * 距离一律使用平方距离D=d²，因此隶属度中的 d^(2/(m-1)) 化为 D^(1/(m-1))：
+ * m=2 时为 D 本身（只需除法），m=3 时为 sqrt(D)，m=4 时为 cbrt(D)，m=5 时为 sqrt(sqrt(D))；
+ * u^m 一律用连乘计算。
+ */
+public abstract class FcmKernel {
+
+    protected final int exponent;
+
+    protected FcmKernel(int exponent) {
+        this.exponent = exponent;
+    }
+
+    public int exponent() {
+        return exponent;
+    }
+
+    /** u^m */
+    public abstract double um(double u);
+
+    /** x^(1/(m-1))，用于原公式中的 (D_j/D_a)^(1/(m-1)) */
+    public abstract double ratio(double x);
+
+    /** D^(-1/(m-1))，用于倒数形式的权重 w */
+    public abstract double weight(double d2);
+
+    /**
+     * 按指数选择内核
+     */
+    public static FcmKernel forExponent(int exponent) {
+        switch (exponent) {
+        case 2:
+            return M2;
+        case 3:
+            return M3;
+        case 4:
+            return M4;
+        case 5:
+            return M5;
+        default:
+            return new General(exponent);
+        }
+    }
+
+    private static final FcmKernel M2 = new FcmKernel(2) {
+        public double um(double u) {
+            return u * u;
+        }
+        public double ratio(double x) {
+            return x;
+        }
+        public double weight(double d2) {
+            return 1 / d2;
+        }
+    };
+
+    private static final FcmKernel M3 = new FcmKernel(3) {
+        public double um(double u) {
+            return u * u * u;
+        }
+        public double ratio(double x) {
+            return Math.sqrt(x);
+        }
+        public double weight(double d2) {
+            return 1 / Math.sqrt(d2);
+        }
+    };
+
+    private static final FcmKernel M4 = new FcmKernel(4) {
+        public double um(double u) {
+            double u2 = u * u;
+            return u2 * u2;
+        }
+        public double ratio(double x) {
+            return Math.cbrt(x);
+        }
+        public double weight(double d2) {
+            return 1 / Math.cbrt(d2);
+        }
+    };
+
+    private static final FcmKernel M5 = new FcmKernel(5) {
+        public double um(double u) {
+            double u2 = u * u;
+            return u2 * u2 * u;
+        }
+        public double ratio(double x) {
+            return Math.sqrt(Math.sqrt(x));
+        }
+        public double weight(double d2) {
+            return 1 / Math.sqrt(Math.sqrt(d2));
+        }
+    };
+
+    /** 其他指数：u^m 仍用连乘，开 (m-1) 次方只能用 pow */
+    private static class General extends FcmKernel {
+        private final double p;
+
+        General(int exponent) {
+            super(exponent);
+            this.p = 1.0 / (exponent - 1);
+        }
+
+        public double um(double u) {
+            double r = u;
+            for (int i = 1; i < exponent; i++) {
+                r *= u;
+            }
+            return r;
+        }
+
+        public double ratio(double x) {
+            return Math.pow(x, p);
+        }
+
+        public double weight(double d2) {
+            return Math.pow(d2, -p);
+        }
+    }
+}
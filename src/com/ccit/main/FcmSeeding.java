@@ -0,0 +1,247 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import java.util.Random;
+
+import com.ccit.bean.DataMatrix;
+import com.ccit.bean.FcmOptions;
+
+/**
+ * 初始隶属度
+ * FCM++：第一个中心随机选取，之后每个中心以各点到已选中心最近距离的平方为概率抽取2+ln(c)个候选，
+ * 保留使各点最近距离平方和下降最多的一个（贪心k-means++）；
+ * 点多时可只在随机抽取的部分点上选取；再按选出的中心计算各点隶属度作为U的初值。
+ * 比随机隶属度更接近数据的实际结构，收敛所需迭代次数更少。
+ */
+public class FcmSeeding {
+
+    /**
+     * 按opt.init初始化工作区中的隶属度（稀疏模式写入ws.Uidx/Uval，opt.single为true时写入ws.Uf，按点优先时写入ws.Up，否则写入ws.U）
+     * 设置了opt.initCenters且维数与数据一致时以这些中心为初值（热启动），不足clusternum个的部分按D²加权补齐，
+     * 多出的只取前clusternum个；维数不一致（如已换了数据）时忽略，仍按opt.init初始化。
+     * 由中心得到隶属度时，所用的中心同时留在ws.c中。
+     * 只保存中心的模式下不写隶属度，而是把初始隶属度对应的中心累加和写入ws.num、ws.den
+     */
+    public static void initMemberships(DataMatrix datas, FcmWorkspace ws, FcmOptions opt) {
+        Random random = FCMAlgorithm.random(opt);
+        int num_data = ws.num_data;
+        int clusternum = ws.clusternum;
+        double[] u = ws.u;
+        boolean seeded = chooseCenters(datas, ws, opt, random);
+        if(ws.centersOnly) {
+            FCMAlgorithm.clearSums(ws.num, ws.den, clusternum, ws.num_d);
+        }
+        for (int j = 0; j < num_data; j++) {
+            initialMembership(datas, j, ws, seeded, random);
+            if(ws.centersOnly) {
+                accumulateInitial(datas, j, ws);
+                continue;
+            }
+            if(ws.topk > 0) {
+                FCMAlgorithm.selectTop(u, clusternum, ws.topk, ws.top_idx, ws.top_val);
+                System.arraycopy(ws.top_idx, 0, ws.Uidx, j * ws.topk, ws.topk);
+                System.arraycopy(ws.top_val, 0, ws.Uval, j * ws.topk, ws.topk);
+                continue;
+            }
+            if(ws.pointMajor) {
+                System.arraycopy(u, 0, ws.Up, j * clusternum, clusternum);
+                continue;
+            }
+            for (int i = 0; i < clusternum; i++) {
+                if(opt.single) {
+                    ws.Uf[i][j] = (float) u[i];
+                } else {
+                    ws.U[i][j] = u[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * 按opt选定初始中心写入ws.c：热启动中心（不足的按D²加权补齐）或FCM++；opt.seedSample同样适用
+     * @return  是否由中心得到初始隶属度；为false时按随机隶属度初始化
+     */
+    static boolean chooseCenters(DataMatrix datas, FcmWorkspace ws, FcmOptions opt, Random random) {
+        return chooseCenters(datas, ws.c, ws.clusternum, opt, random);
+    }
+
+    /** 同上，中心写入c */
+    static boolean chooseCenters(DataMatrix datas, double[][] c, int clusternum, FcmOptions opt, Random random) {
+        int num_d = datas.cols;
+        if(isWarm(opt, num_d)) {
+            int have = Math.min(opt.initCenters.length, clusternum);
+            for (int j = 0; j < have; j++) {
+                System.arraycopy(opt.initCenters[j], 0, c[j], 0, num_d);
+            }
+            seedCenters(datas, c, have, clusternum, opt.seedSample, random);
+            return true;
+        }
+        if(opt.init == FcmOptions.INIT_PLUSPLUS) {
+            seedCenters(datas, c, clusternum, opt.seedSample, random);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 按opt选定clusternum个初始中心，供直接从中心开始迭代的变体（小批量、流式）使用：
+     * 热启动和FCM++与initMemberships相同；opt.init为随机时不放回地随机抽取数据点（点数不足clusternum时才重复）
+     */
+    public static double[][] seedCenters(DataMatrix datas, int clusternum, FcmOptions opt, Random random) {
+        double[][] c = new double[clusternum][datas.cols];
+        if(chooseCenters(datas, c, clusternum, opt, random)) {
+            return c;
+        }
+        int[] picked = new int[clusternum];
+        for (int j = 0; j < clusternum; j++) {
+            int pick = random.nextInt(datas.rows);
+            while (j < datas.rows && contains(picked, j, pick)) {
+                pick = random.nextInt(datas.rows);
+            }
+            picked[j] = pick;
+            datas.getRow(pick, c[j]);
+        }
+        return c;
+    }
+
+    private static boolean contains(int[] a, int len, int v) {
+        for (int t = 0; t < len; t++) {
+            if(a[t] == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** opt.initCenters是否可用于热启动（不为空且维数为num_d） */
+    static boolean isWarm(FcmOptions opt, int num_d) {
+        return opt.initCenters != null && opt.initCenters.length > 0 && opt.initCenters[0].length == num_d;
+    }
+
+    /** chooseCenters是否需要在数据上按D²加权选取中心 */
+    static boolean needsSeeding(FcmOptions opt, int clusternum, int num_d) {
+        if(isWarm(opt, num_d)) {
+            return opt.initCenters.length < clusternum;
+        }
+        return opt.init == FcmOptions.INIT_PLUSPLUS;
+    }
+
+    /**
+     * 第i个点的初始隶属度写入ws.u：seeded为true时由ws.c中的中心计算，否则随机赋值并归一化
+     */
+    static void initialMembership(DataMatrix datas, int i, FcmWorkspace ws, boolean seeded, Random random) {
+        int clusternum = ws.clusternum;
+        double[] u = ws.u;
+        if(seeded) {
+            // 初始中心可能就是数据点，距离为0，只能用倒数形式
+            FCMAlgorithm.pointDistances(datas, i, ws.c, clusternum, ws.dist);
+            FCMAlgorithm.membershipPoint(ws.dist, u, clusternum, ws.kernel, true);
+        } else {
+            double sum_d = 0;
+            for (int j = 0; j < clusternum; j++) {      // 随机赋值
+                u[j] = random.nextDouble()*10;
+                sum_d += u[j];
+            }
+            for (int j = 0; j < clusternum; j++) {      // 归一化
+                u[j] = u[j] / sum_d;
+            }
+        }
+    }
+
+    /** 把第i个点的初始隶属度ws.u对应的 u^m·x、u^m 累加到ws.num、ws.den */
+    static void accumulateInitial(DataMatrix datas, int i, FcmWorkspace ws) {
+        for (int j = 0; j < ws.clusternum; j++) {
+            double w = ws.kernel.um(ws.u[j]);
+            ws.den[j] += w;
+            FCMAlgorithm.addRow(datas, i, w, ws.num[j]);
+        }
+    }
+
+    /**
+     * 有放回地随机抽取sample个行号；sample为0或不小于num_data时返回null，表示使用全部点
+     */
+    static int[] sampleIndex(int num_data, int sample, Random random) {
+        if(sample <= 0 || sample >= num_data) {
+            return null;
+        }
+        int[] index = new int[sample];
+        for (int t = 0; t < sample; t++) {
+            index[t] = random.nextInt(num_data);
+        }
+        return index;
+    }
+
+    /**
+     * D²加权（贪心）选取clusternum个初始中心，写入c
+     * @param sample    参与选取的点数；为0或不小于数据行数时使用全部点，否则有放回地随机抽取sample个点
+     */
+    public static void seedCenters(DataMatrix datas, double[][] c, int clusternum, int sample, Random random) {
+        seedCenters(datas, c, 0, clusternum, sample, random);
+    }
+
+    /**
+     * 在已有的前have个中心之外，D²加权（贪心）选取其余的中心，写入c[have..clusternum)
+     */
+    public static void seedCenters(DataMatrix datas, double[][] c, int have, int clusternum, int sample, Random random) {
+        if(have >= clusternum) {
+            return;
+        }
+        int[] index = sampleIndex(datas.rows, sample, random);
+        int n = index != null ? index.length : datas.rows;
+        double[] min_d = new double[n];         // 各点到已选中心的最近距离平方
+        if(have == 0) {
+            datas.getRow(index != null ? index[random.nextInt(n)] : random.nextInt(n), c[0]);
+            have = 1;
+        }
+        for (int t = 0; t < n; t++) {
+            min_d[t] = Double.MAX_VALUE;
+            for (int j = 0; j < have; j++) {
+                min_d[t] = Math.min(min_d[t], FCMAlgorithm.pointDistance(datas, index != null ? index[t] : t, c[j]));
+            }
+        }
+        double total = 0;
+        for (int t = 0; t < n; t++) {
+            total += min_d[t];
+        }
+        int trials = 2 + (int) Math.log(clusternum);
+        double[] candidate = new double[datas.cols];
+        for (int j = have; j < clusternum; j++) {
+            // 贪心：按D²概率抽取若干候选，保留使 Σmin_d 下降最多的一个
+            double best_total = Double.MAX_VALUE;
+            for (int trial = 0; trial < trials; trial++) {
+                int pick = n - 1;
+                if(total > 0) {
+                    double r = random.nextDouble() * total;
+                    for (int t = 0; t < n; t++) {
+                        r -= min_d[t];
+                        if(r < 0) {
+                            pick = t;
+                            break;
+                        }
+                    }
+                } else {        // 所有点都与已选中心重合
+                    pick = random.nextInt(n);
+                }
+                datas.getRow(index != null ? index[pick] : pick, candidate);
+                double sum = 0;
+                for (int t = 0; t < n; t++) {
+                    sum += Math.min(min_d[t], FCMAlgorithm.pointDistance(datas, index != null ? index[t] : t, candidate));
+                }
+                if(sum < best_total) {
+                    best_total = sum;
+                    System.arraycopy(candidate, 0, c[j], 0, candidate.length);
+                }
+            }
+            total = 0;
+            for (int t = 0; t < n; t++) {
+                double dist = FCMAlgorithm.pointDistance(datas, index != null ? index[t] : t, c[j]);
+                if(dist < min_d[t]) {
+                    min_d[t] = dist;
+                }
+                total += min_d[t];
+            }
+        }
+    }
+}
@@ -0,0 +1,388 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import com.ccit.bean.FcmOptions;
+import com.ccit.bean.FcmResult;
+import com.ccit.bean.LabelArray;
+import com.ccit.bean.StopReason;
+
+/**
+ * FCM迭代所需的全部缓冲区
+ * 一次运行开始时按数据规模准备好，迭代过程中不再分配内存（多线程时调用线程在ForkJoinPool.invoke中等待，
+ * JDK每次迭代分配几十字节的等待节点，与数据规模无关，工作线程不分配）；
+ * 本次运行所用存储方式的容量只增不减，其他存储方式的缓冲区在调整规模时释放。
+ * 运行结束后放回池中供下一次运行复用：池中最多MAX_POOLED个，缓冲区合计超过MAX_POOLED_BYTES的不放回；
+ * 池中的工作区一直占用内存，换数据时应调用clearPool。
+ */
+public class FcmWorkspace {
+    private static final int MAX_POOLED = 2;
+    private static final long MAX_POOLED_BYTES = 256L << 20;      // 放回池中的工作区缓冲区合计上限
+    private static final ArrayDeque<FcmWorkspace> pool = new ArrayDeque<FcmWorkspace>();
+
+    public int num_data = 0;            // 数据行数
+    public int num_d = 0;               // 数据维数
+    public int clusternum = 0;          // 类别数量
+    public FcmKernel kernel;            // 本次运行选定的幂运算内核
+
+    public double[][] U = new double[0][];     // 隶属度 [clusternum][num_data]
+    public float[][] Uf = new float[0][];      // 单精度模式下的隶属度 [clusternum][num_data]
+    public boolean single = false;             // 隶属度以单精度存放在Uf中
+    public boolean pointMajor = false;         // 稠密隶属度按点优先存放在Up中
+    public double[] Up = new double[0];        // 按点优先的隶属度，第i点为[i*clusternum, (i+1)*clusternum)
+    public boolean centersOnly = false;        // 只保存中心，不保存隶属度
+    public int topk = 0;                       // 稀疏模式下每点保存的隶属度个数，0表示稠密
+    public int[] Uidx = new int[0];            // 稀疏隶属度的类号，第i点为[i*topk, (i+1)*topk)，按隶属度从大到小
+    public double[] Uval = new double[0];      // 稀疏隶属度的值
+    public double[][] c = new double[0][];     // 中心 [clusternum][num_d]
+    public double[][] D = new double[0][];     // 距离平方 [clusternum][num_data]
+    public double[][] num = new double[0][];   // 中心分子 Σu^m·x [clusternum][num_d]，单遍模式下跨迭代保存
+    public double[] den = new double[0];       // 中心分母 Σu^m [clusternum]
+    public double[] dist = new double[0];      // 单点到各中心的距离平方 [clusternum]
+    public double[] u = new double[0];         // 单点的隶属度 [clusternum]
+    public int[] top_idx = new int[0];         // 单点选出的最大隶属度的类号 [clusternum]
+    public double[] top_val = new double[0];   // 单点选出的最大隶属度 [clusternum]
+    public double[] J = new double[0];         // 每次迭代的目标函数值
+    public double[] acc = new double[FCMAlgorithm.ACC_SIZE];   // 按范围累加的统计量
+    public LabelArray labels;                  // 不为null时每次迭代的隶属度计算同时写入各点标签
+
+    // 活动集模式（FcmOptions.activeTol），只用于按点优先的稠密隶属度
+    public boolean activeSet = false;          // 是否使用活动集
+    public boolean[] active = new boolean[0];  // 各点是否未冻结 [num_data]
+    public double[] frozen = new double[FCMAlgorithm.ACC_SIZE];    // 冻结点的统计量，布局同acc
+    public boolean activeFull = true;          // 本次迭代是否完整扫描
+    public int activeWait = 0;                 // 距下一次完整扫描还有几次部分扫描
+    public double activeTol = 0;               // 本次迭代的冻结阈值
+
+    // 最近一次迭代的收敛量，供结束条件判断
+    public double deltaU = 0;                  // 隶属度最大变化
+    public double shift = 0;                   // 中心最大移动距离
+    public StopReason reason;                  // 结束原因，未结束时为null
+    public long start_time = 0;                // 本次运行开始时间（System.nanoTime）
+
+    private ParallelFCM parallel;
+    private int parallel_threads = 0;
+
+    /**
+     * 从池中取出一个工作区并调整到所需规模
+     */
+    public static FcmWorkspace acquire(int num_data, int num_d, int clusternum, int iternum) {
+        return acquire(num_data, num_d, clusternum, iternum, false);
+    }
+
+    /**
+     * 从池中取出一个工作区并调整到所需规模
+     * @param single    为true时隶属度存放在Uf中，不分配U与D
+     */
+    public static FcmWorkspace acquire(int num_data, int num_d, int clusternum, int iternum, boolean single) {
+        return acquire(num_data, num_d, clusternum, iternum, single, 0);
+    }
+
+    /**
+     * 从池中取出一个工作区，隶属度的存储方式按opt.centersOnly、opt.topK、opt.single、opt.layout选择；
+     * opt.fused为true时不分配距离D，取得的工作区只能按单遍方式迭代
+     */
+    public static FcmWorkspace acquire(int num_data, int num_d, int clusternum, int iternum, FcmOptions opt) {
+        FcmWorkspace ws = acquire(num_data, num_d, clusternum, iternum, opt.single, opt.topK, opt.centersOnly, 
+                usePointMajor(opt, num_data, clusternum), opt.fused);
+        ws.activeSet = ws.pointMajor && opt.activeTol > 0;
+        if(ws.activeSet && ws.active.length < num_data) {
+            ws.active = new boolean[num_data];
+        }
+        if(!ws.activeSet && ws.active.length > 0) {
+            ws.active = new boolean[0];
+        }
+        return ws;
+    }
+
+    /** 类别数不少于此值时按点优先存放 */
+    private static final int POINT_MAJOR_CLUSTERS = 8;
+    /** 隶属度总个数 n·c 不少于此值（约超出L2）时按点优先存放 */
+    private static final long POINT_MAJOR_SIZE = 1L << 17;
+    /** 单个数组的最大长度；按点优先的Up、稀疏的Uidx/Uval都是一个数组，不能超过 */
+    private static final long MAX_ARRAY = Integer.MAX_VALUE - 8;
+
+    /**
+     * 稠密双精度隶属度是否按点优先存放：使用活动集时总按点优先；opt.layout指定时按指定；
+     * 自动选择时类别数较多且U超出L2才按点优先，类别少时按类优先的c条顺序流对预取器更友好，U很小时两种方式没有差别。
+     * n·c超出单个数组的长度时只能按类优先：自动选择与活动集退回按类优先（活动集随之不用），指定按点优先则抛出异常
+     */
+    public static boolean usePointMajor(FcmOptions opt, int num_data, int clusternum) {
+        if(opt.single || opt.topK > 0 || opt.centersOnly) {
+            return false;
+        }
+        if((long) num_data * clusternum > MAX_ARRAY) {
+            if(opt.layout == FcmOptions.LAYOUT_POINT) {
+                throw new IllegalArgumentException("按点优先的隶属度需要" + ((long) num_data * clusternum) 
+                        + "个元素，超出单个数组的上限，请改用按类优先（LAYOUT_CLUSTER或LAYOUT_AUTO）");
+            }
+            return false;
+        }
+        if(opt.activeTol > 0) {
+            return true;
+        }
+        if(opt.layout != FcmOptions.LAYOUT_AUTO) {
+            return opt.layout == FcmOptions.LAYOUT_POINT;
+        }
+        return clusternum >= POINT_MAJOR_CLUSTERS && (long) num_data * clusternum >= POINT_MAJOR_SIZE;
+    }
+
+    private static FcmWorkspace acquire(int num_data, int num_d, int clusternum, int iternum, boolean single, int topK) {
+        return acquire(num_data, num_d, clusternum, iternum, single, topK, false, false, false);
+    }
+
+    private static FcmWorkspace acquire(int num_data, int num_d, int clusternum, int iternum, boolean single, int topK, 
+            boolean centersOnly, boolean pointMajor, boolean fused) {
+        FcmWorkspace ws;
+        synchronized (pool) {
+            ws = pool.poll();
+        }
+        if(ws == null) {
+            ws = new FcmWorkspace();
+        }
+        ws.resize(num_data, num_d, clusternum, iternum, single, topK, centersOnly, pointMajor, fused);
+        ws.start();
+        return ws;
+    }
+
+    /**
+     * 用调用方已有的数组构造工作区，其余缓冲区按需分配
+     */
+    public static FcmWorkspace wrap(int num_data, int num_d, int clusternum, double[][] U, double[][] c, double[][] D, double[] J) {
+        FcmWorkspace ws = new FcmWorkspace();
+        ws.U = U;
+        ws.c = c;
+        ws.D = D;
+        ws.J = J;
+        ws.num = new double[clusternum][num_d];
+        ws.resize(num_data, num_d, clusternum, J.length);
+        ws.start();
+        return ws;
+    }
+
+    /**
+     * 运行结束后放回池中；池已满或缓冲区超过MAX_POOLED_BYTES时丢弃，并关闭其并行引擎
+     */
+    public static void release(FcmWorkspace ws) {
+        if(ws == null) {
+            return;
+        }
+        ws.kernel = null;
+        ws.labels = null;
+        synchronized (pool) {
+            if(pool.size() < MAX_POOLED && ws.bytes() <= MAX_POOLED_BYTES) {
+                pool.push(ws);
+                return;
+            }
+        }
+        ws.shutdownParallel();
+    }
+
+    /** 清空池，释放缓存的大数组并关闭池中工作区的并行引擎 */
+    public static void clearPool() {
+        synchronized (pool) {
+            for (FcmWorkspace ws : pool) {
+                ws.shutdownParallel();
+            }
+            pool.clear();
+        }
+    }
+
+    /** 按数据规模分配的缓冲区（隶属度、距离、活动集标记）合计的字节数 */
+    public long bytes() {
+        long cells = (long) Up.length + Uval.length;
+        for (int j = 0; j < U.length; j++) {
+            cells += U[j].length;
+        }
+        for (int j = 0; j < D.length; j++) {
+            cells += D[j].length;
+        }
+        long bytes = cells * 8 + (long) Uidx.length * 4 + active.length;
+        for (int j = 0; j < Uf.length; j++) {
+            bytes += (long) Uf[j].length * 4;
+        }
+        return bytes;
+    }
+
+    /** 关闭并行引擎（如果有），之后再需要时重新创建 */
+    public void shutdownParallel() {
+        if(parallel != null) {
+            parallel.shutdown();
+            parallel = null;
+        }
+    }
+
+    /**
+     * 调整规模；已有容量足够时不重新分配
+     */
+    public void resize(int num_data, int num_d, int clusternum, int iternum) {
+        resize(num_data, num_d, clusternum, iternum, false);
+    }
+
+    /**
+     * 调整规模；single为true时只准备单精度的隶属度Uf
+     */
+    public void resize(int num_data, int num_d, int clusternum, int iternum, boolean single) {
+        resize(num_data, num_d, clusternum, iternum, single, 0);
+    }
+
+    /**
+     * 调整规模；topK大于0时只准备稀疏隶属度Uidx/Uval，否则single为true时只准备Uf
+     */
+    public void resize(int num_data, int num_d, int clusternum, int iternum, boolean single, int topK) {
+        resize(num_data, num_d, clusternum, iternum, single, topK, false);
+    }
+
+    /**
+     * 调整规模；centersOnly为true时不准备任何隶属度缓冲区
+     */
+    public void resize(int num_data, int num_d, int clusternum, int iternum, boolean single, int topK, boolean centersOnly) {
+        resize(num_data, num_d, clusternum, iternum, single, topK, centersOnly, false);
+    }
+
+    /**
+     * 调整规模；pointMajor为true（且不是单精度、稀疏或只保存中心）时稠密隶属度只准备按点优先的Up，不分配U与D。
+     * 本次不用的存储方式的缓冲区随之释放，避免池中的工作区同时占着几种隶属度
+     */
+    public void resize(int num_data, int num_d, int clusternum, int iternum, boolean single, int topK, boolean centersOnly, 
+            boolean pointMajor) {
+        resize(num_data, num_d, clusternum, iternum, single, topK, centersOnly, pointMajor, false);
+    }
+
+    /**
+     * 调整规模；fused为true时按类优先的稠密隶属度也不分配距离D（单遍扫描逐点现算距离），
+     * 这样的工作区只能用于opt.fused为true的迭代
+     */
+    public void resize(int num_data, int num_d, int clusternum, int iternum, boolean single, int topK, boolean centersOnly, 
+            boolean pointMajor, boolean fused) {
+        this.centersOnly = centersOnly;
+        topk = topK > 0 && !centersOnly ? Math.min(topK, clusternum) : 0;
+        this.single = single && !centersOnly && topk == 0;
+        this.activeSet = false;         // 由acquire按运行参数打开
+        this.pointMajor = pointMajor && !centersOnly && topk == 0 && !single;
+        if(centersOnly) {
+            // 隶属度现算现用
+        } else if(topk > 0) {
+            if((long) num_data * topk > MAX_ARRAY) {
+                throw new IllegalArgumentException("稀疏隶属度需要" + ((long) num_data * topk) + "个元素，超出单个数组的上限，请减小topK");
+            }
+            if(Uidx.length < num_data * topk) {
+                Uidx = new int[num_data * topk];
+                Uval = new double[num_data * topk];
+            }
+        } else if(single) {
+            if(Uf.length < clusternum || (clusternum > 0 && Uf[0].length < num_data)) {
+                Uf = new float[Math.max(clusternum, Uf.length)][Math.max(num_data, Uf.length > 0 ? Uf[0].length : 0)];
+            }
+        } else if(this.pointMajor) {
+            if((long) num_data * clusternum > MAX_ARRAY) {
+                throw new IllegalArgumentException("按点优先的隶属度需要" + ((long) num_data * clusternum) + "个元素，超出单个数组的上限");
+            }
+            if(Up.length < num_data * clusternum) {
+                Up = new double[num_data * clusternum];
+            }
+        } else {
+            if(U.length < clusternum || (clusternum > 0 && U[0].length < num_data)) {
+                U = new double[Math.max(clusternum, U.length)][Math.max(num_data, U.length > 0 ? U[0].length : 0)];
+            }
+            if(!fused && (D.length < U.length || (U.length > 0 && D[0].length < U[0].length))) {
+                D = new double[U.length][U.length > 0 ? U[0].length : 0];
+            }
+        }
+        boolean dense = !centersOnly && topk == 0 && !this.single && !this.pointMajor;
+        if(topk == 0 && Uidx.length > 0) {
+            Uidx = new int[0];
+            Uval = new double[0];
+        }
+        if(!this.single && Uf.length > 0) {
+            Uf = new float[0][];
+        }
+        if(!this.pointMajor && Up.length > 0) {
+            Up = new double[0];
+            active = new boolean[0];
+        }
+        if(!dense && U.length > 0) {
+            U = new double[0][];
+        }
+        if((!dense || fused) && D.length > 0) {
+            D = new double[0][];
+        }
+        if(c.length < clusternum || (clusternum > 0 && c[0].length < num_d)) {
+            c = new double[Math.max(clusternum, c.length)][Math.max(num_d, c.length > 0 ? c[0].length : 0)];
+            num = new double[c.length][c[0].length];
+        }
+        if(den.length < clusternum) {
+            den = new double[clusternum];
+            dist = new double[clusternum];
+            u = new double[clusternum];
+            top_idx = new int[clusternum];
+            top_val = new double[clusternum];
+        }
+        if(J.length < iternum) {
+            J = new double[iternum];
+        }
+        if(num_data != this.num_data || num_d != this.num_d || clusternum != this.clusternum) {
+            shutdownParallel();
+        }
+        this.num_data = num_data;
+        this.num_d = num_d;
+        this.clusternum = clusternum;
+    }
+
+    /** 开始一次新的运行 */
+    public void start() {
+        start_time = System.nanoTime();
+        FCMAlgorithm.clearAcc(acc);
+        activeFull = true;
+        activeWait = 0;
+        reason = null;
+        deltaU = 0;
+        shift = 0;
+    }
+
+    /** 本次运行已用时间（毫秒） */
+    public long elapsed() {
+        return (System.nanoTime() - start_time) / 1000000L;
+    }
+
+    /**
+     * 汇总运行结果
+     * @param iterations    实际完成的迭代次数
+     */
+    public FcmResult result(int iterations) {
+        FcmResult result = new FcmResult();
+        result.iterations = iterations;
+        result.J = iterations > 0 ? J[iterations - 1] : 0;
+        result.centers = new double[clusternum][];
+        for (int j = 0; j < clusternum; j++) {
+            result.centers[j] = Arrays.copyOf(c[j], num_d);
+        }
+        result.reason = reason != null ? reason : StopReason.ITERATIONS;
+        if(iterations > 0 && acc[FCMAlgorithm.ACC_PC] > 0) {       // 最后一次迭代累加了有效性指标
+            result.pc = acc[FCMAlgorithm.ACC_PC] / num_data;
+            result.pe = acc[FCMAlgorithm.ACC_PE] / num_data;
+            result.xb = result.J / (num_data * FCMAlgorithm.minCenterDistance(c, clusternum, num_d));
+        }
+        result.elapsed = elapsed();
+        return result;
+    }
+
+    /**
+     * 取得与当前规模匹配的并行引擎；线程数不大于1时返回null
+     */
+    public ParallelFCM parallel(int threads) {
+        if(threads <= 1) {
+            return null;
+        }
+        if(parallel == null || parallel_threads != threads) {
+            shutdownParallel();
+            parallel = new ParallelFCM(threads, num_data, clusternum, num_d);
+            parallel_threads = threads;
+        }
+        return parallel;
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import java.util.Arrays;
+
+import com.ccit.bean.CenterRooter;
+import com.ccit.bean.DataMatrix;
+import com.ccit.bean.FcmOptions;
+import com.ccit.bean.FcmResult;
+import com.ccit.bean.LabelArray;
+
+/**
+ * 网格压缩FCM（brFCM）
+ * 每一维在[min, max]上均分为opt.gridBins格，落入同一格的点合并为一个代表点（格内各点的均值），权重为点数；
+ * 在代表点上运行加权FCM，再把每格的标签映射回原始各行。
+ * 适用于维数低（2～4维）、重复或相近点很多的数据，迭代代价只与非空格数有关，而与n无关。
+ */
+public class GridFCM {
+
+    /**
+     * 网格压缩fcm
+     * @param datas             原始数据，可为单精度存储
+     * @param datas_label       数据标签，为null时不计算标签
+     * @param center_rooters    中心轨迹，为null时不记录
+     * @param clusternum        类别数量
+     * @param iternum           迭代次数
+     * @param exponent          指数
+     * @param opt               运行参数：gridBins、init、seedSample、reciprocal、stop
+     * @return                  运行结果，J为代表点上的加权目标函数值；参数无效时返回null
+     */
+    public static FcmResult fcm(DataMatrix datas, LabelArray datas_label, CenterRooter[] center_rooters, 
+            int clusternum, int iternum, int exponent, FcmOptions opt) {
+        if(datas == null || datas.rows < 1 || exponent <= 1 || opt.gridBins < 1) {
+            return null;
+        }
+        long start_time = System.nanoTime();
+        int num_data = datas.rows;
+        int num_d = datas.cols;
+        int bins = opt.gridBins;
+        if(num_d * (Math.log(bins) / Math.log(2)) >= 63) {
+            throw new IllegalArgumentException("网格格数过多：gridBins^d 超出long范围");
+        }
+        
+        /** 各维的范围与格宽 */
+        double[] min = new double[num_d];
+        double[] scale = new double[num_d];
+        Arrays.fill(min, Double.MAX_VALUE);
+        double[] max = new double[num_d];
+        Arrays.fill(max, -Double.MAX_VALUE);
+        for (int i = 0; i < num_data; i++) {
+            for (int k = 0; k < num_d; k++) {
+                double v = datas.get(i, k);
+                min[k] = Math.min(min[k], v);
+                max[k] = Math.max(max[k], v);
+            }
+        }
+        for (int k = 0; k < num_d; k++) {
+            scale[k] = max[k] > min[k] ? bins / (max[k] - min[k]) : 0;
+        }
+        
+        /** 非空格：各点的格编号排序去重 */
+        long[] keys = new long[num_data];
+        for (int i = 0; i < num_data; i++) {
+            keys[i] = key(datas, i, min, scale, bins);
+        }
+        Arrays.sort(keys);
+        int cells = 0;
+        for (int i = 0; i < num_data; i++) {
+            if(i == 0 || keys[i] != keys[i - 1]) {
+                keys[cells++] = keys[i];
+            }
+        }
+        
+        /** 代表点：格内均值，权重为点数 */
+        DataMatrix reps = new DataMatrix(cells, num_d);
+        double[] weights = new double[cells];
+        for (int i = 0; i < num_data; i++) {
+            int cell = Arrays.binarySearch(keys, 0, cells, key(datas, i, min, scale, bins));
+            weights[cell]++;
+            for (int k = 0; k < num_d; k++) {
+                reps.values[cell * num_d + k] += datas.get(i, k);
+            }
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            for (int k = 0; k < num_d; k++) {
+                reps.values[cell * num_d + k] /= weights[cell];
+            }
+        }
+        
+        /** 代表点上的加权FCM */
+        FcmKernel kernel = FcmKernel.forExponent(exponent);
+        double[][] c = new double[clusternum][num_d];
+        if(opt.init == FcmOptions.INIT_PLUSPLUS) {
+            FcmSeeding.seedCenters(reps, c, clusternum, opt.seedSample, FCMAlgorithm.random(opt));
+        } else {
+            for (int j = 0; j < clusternum; j++) {
+                reps.getRow(FCMAlgorithm.random(opt).nextInt(cells), c[j]);
+            }
+        }
+        FcmResult result = WeightedFCM.fcm(reps, weights, c, center_rooters, clusternum, iternum, kernel, opt, null);
+        
+        /** 每格的标签映射回原始各行（不需要标签时跳过） */
+        if(datas_label != null) {
+            int[] cell_label = new int[cells];
+            double[] d = new double[clusternum];
+            double[] u = new double[clusternum];
+            for (int cell = 0; cell < cells; cell++) {
+                FCMAlgorithm.pointDistances(reps, cell, c, clusternum, d);
+                FCMAlgorithm.membershipPoint(d, u, clusternum, kernel, true);
+                int index = 0;
+                for (int j = 1; j < clusternum; j++) {
+                    if(u[index] < u[j]) {
+                        index = j;
+                    }
+                }
+                cell_label[cell] = index+1;
+            }
+            for (int i = 0; i < num_data; i++) {
+                datas_label.set(i, cell_label[Arrays.binarySearch(keys, 0, cells, key(datas, i, min, scale, bins))]);
+            }
+        }
+        result.elapsed = (System.nanoTime() - start_time) / 1000000L;
+        return result;
+    }
+
+    /** 第i个点所在格的编号 */
+    private static long key(DataMatrix datas, int i, double[] min, double[] scale, int bins) {
+        long key = 0;
+        for (int k = 0; k < min.length; k++) {
+            int b = (int) ((datas.get(i, k) - min[k]) * scale[k]);
+            if(b >= bins) {
+                b = bins - 1;
+            }
+            key = key * bins + b;
+        }
+        return key;
+    }
+}
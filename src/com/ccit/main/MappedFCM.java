@@ -0,0 +1,396 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.ccit.bean.CenterRooter;
+import com.ccit.bean.DataMatrix;
+import com.ccit.bean.FcmOptions;
+import com.ccit.bean.FcmResult;
+import com.ccit.util.CSVFileUtil;
+
+/**
+ * 内存映射的外存FCM（精确算法，不做近似）
+ * 数据存放在二进制矩阵文件中（见write、convert），按opt.chunkRows行分块映射，每次迭代顺序扫描一遍；
+ * 内存中只有中心、每次迭代的累加和与两个块缓冲区。后台线程把下一块从映射区复制到空闲的缓冲区，
+ * 与当前块的计算重叠；文件不超过两块时首遍之后不再读文件。
+ * 每次迭代与只保存中心模式（opt.centersOnly）的单线程FCMAlgorithm.fcm完全相同，
+ * opt.seedSample相同时（为0时按SEED_SAMPLE抽样，数据不多于SEED_SAMPLE行时使用全部点）结果逐位一致。
+ */
+public class MappedFCM {
+    public static final int MAGIC = 0x46434D31;        // 文件头魔数 "FCM1"
+    private static final int HEADER = 16;               // 魔数、行数、列数、每个数的字节数（4或8）
+    public static final int SEED_SAMPLE = 1 << 16;      // opt.seedSample为0时FCM++的抽样点数
+
+    /**
+     * 外存fcm
+     * @param input             二进制矩阵文件
+     * @param output            标签输出文件（每行一个标签，从1开始）；为null时不输出
+     * @param center_rooters    中心轨迹，为null时不记录
+     * @param clusternum        类别数量
+     * @param iternum           迭代次数
+     * @param exponent          指数
+     * @param opt               运行参数：chunkRows、single、init、seedSample、initCenters、reciprocal、validity、stop
+     * @return                  运行结果；文件为空或参数无效时返回null
+     */
+    public static FcmResult fcm(File input, File output, CenterRooter[] center_rooters,
+            int clusternum, int iternum, int exponent, FcmOptions opt) throws IOException, InterruptedException {
+        if(exponent <= 1 || clusternum < 1) {
+            return null;
+        }
+        final Source src = new Source(input, opt.chunkRows);
+        if(src.rows < 1) {
+            src.close();
+            return null;
+        }
+        ExecutorService reader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "MappedFCM-reader");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        FcmOptions run_opt = opt.copy();
+        run_opt.centersOnly = true;
+        run_opt.threads = 1;
+        final FcmWorkspace ws = FcmWorkspace.acquire(src.rows, src.cols, clusternum, iternum, run_opt);
+        try {
+            ws.kernel = FcmKernel.forExponent(exponent);
+            final int c = clusternum;
+            final FcmOptions o = opt;
+            DataMatrix[] buffers = new DataMatrix[2];
+            for (int b = 0; b < buffers.length; b++) {
+                buffers[b] = new DataMatrix(src.chunk_rows, src.cols, DataMatrix.ROW_MAJOR, opt.single);
+            }
+
+            /** 初始中心：在抽样点上选取，与内存中的FcmSeeding按相同顺序使用随机数 */
+            final Random random = FCMAlgorithm.random(opt);
+            DataMatrix sample = null;
+            if(FcmSeeding.needsSeeding(opt, clusternum, src.cols)) {
+                sample = src.sample(opt.seedSample > 0 ? opt.seedSample : SEED_SAMPLE, random, opt.single);
+            }
+            FcmOptions seed_opt = run_opt.copy();
+            seed_opt.seedSample = 0;            // 抽样已在读入sample时完成
+            final boolean seeded = FcmSeeding.chooseCenters(sample, ws, seed_opt, random);
+
+            /** 初始隶属度对应的中心累加和 */
+            FCMAlgorithm.clearSums(ws.num, ws.den, clusternum, ws.num_d);
+            src.pass(reader, buffers, new ChunkVisitor() {
+                public void visit(DataMatrix chunk) {
+                    for (int i = 0; i < chunk.rows; i++) {
+                        FcmSeeding.initialMembership(chunk, i, ws, seeded, random);
+                        FcmSeeding.accumulateInitial(chunk, i, ws);
+                    }
+                }
+            });
+
+            /**循环--每次迭代顺序扫描一遍文件*/
+            int iter_i = 0;
+            while (iter_i < iternum) {
+                ws.shift = FCMAlgorithm.finishCenters(center_rooters, clusternum, ws.num_d, ws.num, ws.den, ws.c);
+                FCMAlgorithm.clearSums(ws.num, ws.den, clusternum, ws.num_d);
+                FCMAlgorithm.clearAcc(ws.acc);
+                src.pass(reader, buffers, new ChunkVisitor() {
+                    public void visit(DataMatrix chunk) {
+                        FCMAlgorithm.centerSweep(chunk, ws.c, ws.kernel, o.reciprocal, c, 0, chunk.rows,
+                                ws.num, ws.den, ws.dist, ws.u, ws.acc, o.validity, null);
+                    }
+                });
+                ws.J[iter_i] = ws.acc[FCMAlgorithm.ACC_J];
+                ws.deltaU = ws.acc[FCMAlgorithm.ACC_DU];
+                ws.reason = opt.stop.check(ws.J, iter_i, ws.deltaU, ws.shift, ws.elapsed());
+                iter_i++;
+                if(ws.reason != null) {
+                    break;
+                }
+            }
+
+            if(output != null) {
+                writeLabels(src, reader, buffers, ws, output);
+            }
+            return ws.result(iter_i);
+        } finally {
+            reader.shutdownNow();
+            src.close();
+            FcmWorkspace.release(ws);
+        }
+    }
+
+    /** 按最终中心输出标签：隶属度最大的类即距离最近的中心 */
+    private static void writeLabels(Source src, ExecutorService reader, DataMatrix[] buffers, final FcmWorkspace ws,
+            File output) throws IOException, InterruptedException {
+        final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), "UTF-8"), 1 << 16);
+        try {
+            final IOException[] error = new IOException[1];
+            src.pass(reader, buffers, new ChunkVisitor() {
+                public void visit(DataMatrix chunk) {
+                    try {
+                        for (int i = 0; error[0] == null && i < chunk.rows; i++) {
+                            writer.write(Integer.toString(FCMAlgorithm.nearest(chunk, i, ws.c, ws.clusternum, ws.dist)+1));
+                            writer.newLine();
+                        }
+                    } catch (IOException e) {
+                        error[0] = e;
+                    }
+                }
+            });
+            if(error[0] != null) {
+                throw error[0];
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * 把数据写成二进制矩阵文件，按数据的存储精度保存（单精度4字节，双精度8字节）
+     */
+    public static void write(DataMatrix datas, File file) throws IOException {
+        int bytes = datas.single ? 4 : 8;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            writeHeader(channel, datas.rows, datas.cols, bytes);
+            int rows_per_write = Math.max(1, (1 << 20) / (datas.cols * bytes));
+            ByteBuffer buf = ByteBuffer.allocate(rows_per_write * datas.cols * bytes).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < datas.rows; i++) {
+                for (int k = 0; k < datas.cols; k++) {
+                    if(datas.single) {
+                        buf.putFloat((float) datas.get(i, k));
+                    } else {
+                        buf.putDouble(datas.get(i, k));
+                    }
+                }
+                if(!buf.hasRemaining() || i == datas.rows - 1) {
+                    buf.flip();
+                    while (buf.hasRemaining()) {
+                        channel.write(buf);
+                    }
+                    buf.clear();
+                }
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * 把CSV文件逐行转换为二进制矩阵文件，不整体读入内存；列数以第一个非空行为准，多余的列忽略，缺少的列按0处理
+     * @param single    为true时按单精度保存
+     * @return          行数
+     */
+    public static int convert(File csv, File file, boolean single) throws Exception {
+        int bytes = single ? 4 : 8;
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(csv), CSVFileUtil.ENCODE));
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            CSVFileUtil csvFileUtil = new CSVFileUtil(br);
+            ByteBuffer buf = null;
+            double[] row = null;
+            int rows = 0;
+            String inString;
+            while ((inString = csvFileUtil.readLine()) != null) {
+                List<String> ling_list = csvFileUtil.fromCSVLinetoArray(inString);
+                if(ling_list.isEmpty()) {
+                    continue;
+                }
+                if(row == null) {
+                    row = new double[ling_list.size()];
+                    writeHeader(channel, 0, row.length, bytes);
+                    buf = ByteBuffer.allocate(Math.max(1, (1 << 20) / (row.length * bytes)) * row.length * bytes)
+                            .order(ByteOrder.LITTLE_ENDIAN);
+                }
+                StreamingFCM.parseRow(ling_list, row);
+                for (int k = 0; k < row.length; k++) {
+                    if(single) {
+                        buf.putFloat((float) row[k]);
+                    } else {
+                        buf.putDouble(row[k]);
+                    }
+                }
+                rows++;
+                if(!buf.hasRemaining()) {
+                    flush(channel, buf);
+                }
+            }
+            if(row == null) {
+                return 0;
+            }
+            flush(channel, buf);
+            channel.position(0);
+            writeHeader(channel, rows, row.length, bytes);     // 补写行数
+            return rows;
+        } finally {
+            br.close();
+            raf.close();
+        }
+    }
+
+    private static void writeHeader(FileChannel channel, int rows, int cols, int bytes) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(rows).putInt(cols).putInt(bytes);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    /** 处理读入的一块 */
+    private interface ChunkVisitor {
+        void visit(DataMatrix chunk);
+    }
+
+    /** 按块映射的矩阵文件 */
+    private static class Source {
+        final RandomAccessFile raf;
+        final int rows;
+        final int cols;
+        final int bytes;
+        final int chunk_rows;
+        final MappedByteBuffer[] maps;      // 第k块为[k*chunk_rows, min((k+1)*chunk_rows, rows))行
+        final int[] held = { -1, -1 };      // 两个缓冲区当前存放的块号
+
+        Source(File file, int chunkRows) throws IOException {
+            raf = new RandomAccessFile(file, "r");
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            FileChannel channel = raf.getChannel();
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+            header.flip();
+            if(header.remaining() < HEADER || header.getInt() != MAGIC) {
+                raf.close();
+                throw new IOException("不是二进制矩阵文件：" + file);
+            }
+            rows = header.getInt();
+            cols = header.getInt();
+            bytes = header.getInt();
+            if((bytes != 4 && bytes != 8) || cols < 1 || channel.size() < HEADER + (long) rows * cols * bytes) {
+                raf.close();
+                throw new IOException("二进制矩阵文件已损坏：" + file);
+            }
+            chunk_rows = Math.max(1, Math.min(chunkRows, Integer.MAX_VALUE / (cols * bytes)));    // 单个映射不超过2GB
+            int chunks = (int) (((long) rows + chunk_rows - 1) / chunk_rows);
+            maps = new MappedByteBuffer[chunks];
+            for (int k = 0; k < chunks; k++) {
+                long first = (long) k * chunk_rows;
+                long count = Math.min(chunk_rows, rows - first);
+                maps[k] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + first * cols * bytes, count * cols * bytes);
+            }
+        }
+
+        /**
+         * 顺序处理全部块：处理第k块的同时由reader把第k+1块读入另一个缓冲区；
+         * 缓冲区中已是所需的块时不再读入
+         */
+        void pass(ExecutorService reader, DataMatrix[] buffers, ChunkVisitor visitor) throws IOException, InterruptedException {
+            Future<DataMatrix> next = reader.submit(loader(0, buffers));
+            for (int k = 0; k < maps.length; k++) {
+                DataMatrix chunk;
+                try {
+                    chunk = next.get();
+                } catch (ExecutionException e) {
+                    if(e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+                if(k + 1 < maps.length) {
+                    next = reader.submit(loader(k + 1, buffers));
+                }
+                visitor.visit(chunk);
+            }
+        }
+
+        /** 把第k块读入第k%2个缓冲区 */
+        private Callable<DataMatrix> loader(final int k, final DataMatrix[] buffers) {
+            return new Callable<DataMatrix>() {
+                public DataMatrix call() {
+                    DataMatrix dest = buffers[k & 1];
+                    if(held[k & 1] != k) {
+                        held[k & 1] = -1;
+                        read(k, dest);
+                        held[k & 1] = k;
+                    }
+                    return dest;
+                }
+            };
+        }
+
+        private void read(int k, DataMatrix dest) {
+            int count = maps[k].capacity() / (cols * bytes);
+            int len = count * cols;
+            ByteBuffer buf = maps[k].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            dest.rows = count;
+            if(bytes == 8 && !dest.single) {
+                buf.asDoubleBuffer().get(dest.values, 0, len);
+            } else if(bytes == 4 && dest.single) {
+                buf.asFloatBuffer().get(dest.fvalues, 0, len);
+            } else {
+                for (int t = 0; t < len; t++) {
+                    double v = bytes == 8 ? buf.getDouble(t * 8) : buf.getFloat(t * 4);
+                    if(dest.single) {
+                        dest.fvalues[t] = (float) v;
+                    } else {
+                        dest.values[t] = v;
+                    }
+                }
+            }
+        }
+
+        /**
+         * 有放回地随机抽取sample个点（与FcmSeeding.sampleIndex使用相同的随机数序列），读入内存；
+         * 行数不多于sample时读入全部点
+         */
+        DataMatrix sample(int sample, Random random, boolean single) {
+            int[] index = FcmSeeding.sampleIndex(rows, sample, random);
+            int n = index != null ? index.length : rows;
+            DataMatrix m = new DataMatrix(n, cols, DataMatrix.ROW_MAJOR, single);
+            for (int t = 0; t < n; t++) {
+                int i = index != null ? index[t] : t;
+                ByteBuffer buf = maps[i / chunk_rows].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                int off = (i % chunk_rows) * cols * bytes;
+                for (int k = 0; k < cols; k++) {
+                    m.set(t, k, bytes == 8 ? buf.getDouble(off + k * 8) : buf.getFloat(off + k * 4));
+                }
+            }
+            return m;
+        }
+
+        void close() throws IOException {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import java.util.Random;
+
+import com.ccit.bean.CenterRooter;
+import com.ccit.bean.DataMatrix;
+import com.ccit.bean.FcmOptions;
+import com.ccit.bean.FcmResult;
+import com.ccit.bean.LabelArray;
+import com.ccit.bean.StopReason;
+
+/**
+ * 小批量FCM
+ * 每步随机抽取opt.batchSize个点，按当前中心计算它们的隶属度，得到这一批的加权中心 num/den；
+ * 中心按学习率 η_j = den_j/Σden_j（该中心至今累计的权重）向批中心移动：c_j += η_j·(num_j/den_j - c_j)。
+ * 全部批次结束后扫描一遍全体数据，得到标签和目标函数值。
+ * 每步只接触一批点，数据量很大时比完整迭代快得多，代价是中心精度略有损失。
+ */
+public class MiniBatchFCM {
+
+    /**
+     * 小批量fcm
+     * @param datas             原始数据，可为单精度存储
+     * @param datas_label       数据标签，为null时不计算标签
+     * @param center_rooters    每批更新后的中心轨迹，为null时不记录
+     * @param clusternum        类别数量
+     * @param exponent          指数
+     * @param opt               运行参数：batchSize、batchPasses、reciprocal、init、initCenters、seedSample，结束条件只使用opt.stop.checkCenters
+     * @return                  运行结果，iterations为实际处理的批数；参数无效时返回null
+     */
+    public static FcmResult fcm(DataMatrix datas, LabelArray datas_label, CenterRooter[] center_rooters, 
+            int clusternum, int exponent, FcmOptions opt) {
+        if(datas == null || datas.rows < 1 || exponent <= 1 || opt.batchSize < 1) {
+            return null;
+        }
+        long start_time = System.nanoTime();
+        int num_data = datas.rows;
+        int num_d = datas.cols;
+        FcmKernel kernel = FcmKernel.forExponent(exponent);
+        Random random = FCMAlgorithm.random(opt);
+        int batch = Math.min(opt.batchSize, num_data);
+        long batches = ((long) opt.batchPasses * num_data + batch - 1) / batch;
+        
+        // 初始中心：热启动、FCM++或随机数据点，按opt.init、opt.initCenters、opt.seedSample
+        double[][] c = FcmSeeding.seedCenters(datas, clusternum, opt, random);
+        double[][] num = new double[clusternum][num_d];
+        double[] den = new double[clusternum];
+        double[] seen = new double[clusternum];       // 各中心至今累计的权重
+        double[] d = new double[clusternum];
+        double[] u = new double[clusternum];
+        
+        int iter_i = 0;
+        StopReason reason = null;
+        while (iter_i < batches) {
+            /** 这一批的加权中心和 */
+            FCMAlgorithm.clearSums(num, den, clusternum, num_d);
+            for (int b = 0; b < batch; b++) {
+                int i = random.nextInt(num_data);
+                FCMAlgorithm.pointDistances(datas, i, c, clusternum, d);
+                FCMAlgorithm.membershipPoint(d, u, clusternum, kernel, opt.reciprocal);
+                for (int j = 0; j < clusternum; j++) {
+                    double w = kernel.um(u[j]);
+                    den[j] += w;
+                    double[] num_j = num[j];
+                    for (int k = 0; k < num_d; k++) {
+                        num_j[k] += w * datas.get(i, k);
+                    }
+                }
+            }
+            
+            /** 按学习率移动中心 */
+            double max_shift = 0;
+            for (int j = 0; j < clusternum; j++) {
+                if(den[j] > 0) {
+                    seen[j] += den[j];
+                    double eta = den[j] / seen[j];
+                    double[] num_j = num[j];
+                    double[] c_j = c[j];
+                    double shift = 0;
+                    for (int k = 0; k < num_d; k++) {
+                        double step = eta * (num_j[k] / den[j] - c_j[k]);
+                        shift += step * step;
+                        c_j[k] += step;
+                    }
+                    if(shift > max_shift) {
+                        max_shift = shift;
+                    }
+                }
+                
+                // 保存中点变动轨迹
+                if(center_rooters != null) {
+                    double[] center = new double[num_d];
+                    System.arraycopy(c[j], 0, center, 0, num_d);
+                    ((center_rooters[j]).li).add(center);
+                }
+            }
+            
+            long elapsed = (System.nanoTime() - start_time) / 1000000L;
+            reason = opt.stop.checkCenters(iter_i, Math.sqrt(max_shift), elapsed);
+            iter_i++;
+            if(reason != null) {
+                break;
+            }
+        }
+        
+        /** 最后扫描一遍全体数据：标签（需要时）与目标函数 */
+        double J = 0;
+        for (int i = 0; i < num_data; i++) {
+            FCMAlgorithm.pointDistances(datas, i, c, clusternum, d);
+            FCMAlgorithm.membershipPoint(d, u, clusternum, kernel, opt.reciprocal);
+            int index = 0;
+            for (int j = 0; j < clusternum; j++) {
+                J += kernel.um(u[j]) * d[j];
+                if(u[index] < u[j]) {
+                    index = j;
+                }
+            }
+            if(datas_label != null) {
+                datas_label.set(i, index+1);
+            }
+        }
+        
+        FcmResult result = new FcmResult();
+        result.iterations = iter_i;
+        result.J = J;
+        result.centers = c;
+        result.reason = reason != null ? reason : StopReason.ITERATIONS;
+        result.elapsed = (System.nanoTime() - start_time) / 1000000L;
+        return result;
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.ccit.bean.CenterRooter;
+import com.ccit.bean.ConvergencePolicy;
+import com.ccit.bean.DataMatrix;
+import com.ccit.bean.FcmOptions;
+import com.ccit.bean.FcmResult;
+import com.ccit.bean.LabelArray;
+import com.ccit.bean.StopReason;
+
+/**
+ * 多次启动FCM
+ * 同时启动opt.starts次独立运行，每次运行有自己的随机数发生器（种子取自FCMAlgorithm.random(opt)），最多opt.threads个同时进行；
+ * 各运行共享每次迭代的最优目标函数值，迭代次数超过opt.abandonAfter后，J比同一迭代次数下的最优值
+ * （或已结束运行的最终值）高出opt.abandonMargin的运行提前放弃。返回未放弃的运行中最终J最小的结果。
+ */
+public class MultiStartFCM {
+
+    /**
+     * 多次启动fcm
+     * @param datas             原始数据
+     * @param datas_label       数据标签，按最优运行的中心计算
+     * @param center_rooters    最优运行的中心轨迹，为null时不记录
+     * @param clusternum        类别数量
+     * @param iternum           每次运行的迭代次数
+     * @param exponent          指数
+     * @param opt               运行参数；每次运行内部按单线程执行
+     * @return                  最优运行的结果；参数无效时返回null
+     */
+    public static FcmResult fcm(final DataMatrix datas, LabelArray datas_label, CenterRooter[] center_rooters, 
+            final int clusternum, final int iternum, final int exponent, FcmOptions opt) throws InterruptedException {
+        if(datas == null || datas.rows < 1 || exponent <= 1 || opt.starts < 1) {
+            return null;
+        }
+        long start_time = System.nanoTime();
+        final DataMatrix run_datas = datas.toPrecision(opt.single);      // 只转换一次，各运行共用
+        final Progress progress = new Progress(iternum);
+        Random random = FCMAlgorithm.random(opt);
+        
+        List<Callable<FcmResult>> runs = new ArrayList<Callable<FcmResult>>();
+        final CenterRooter[][] rooters = new CenterRooter[opt.starts][];
+        for (int r = 0; r < opt.starts; r++) {
+            final FcmOptions run_opt = opt.copy();
+            run_opt.threads = 1;
+            run_opt.random = new Random(random.nextLong());
+            run_opt.stop = new AbandonPolicy(opt.stop, progress, opt.abandonMargin, opt.abandonAfter);
+            if(center_rooters != null) {
+                rooters[r] = new CenterRooter[clusternum];
+                for (int j = 0; j < clusternum; j++) {
+                    rooters[r][j] = new CenterRooter();
+                }
+            }
+            final CenterRooter[] run_rooters = rooters[r];
+            runs.add(new Callable<FcmResult>() {
+                public FcmResult call() {
+                    return FCMAlgorithm.fcm(run_datas, null, run_rooters, clusternum, iternum, exponent, run_opt);
+                }
+            });
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(opt.threads, opt.starts)));
+        FcmResult best = null;
+        int best_r = -1;
+        try {
+            List<Future<FcmResult>> results = executor.invokeAll(runs);
+            for (int r = 0; r < results.size(); r++) {
+                FcmResult result = results.get(r).get();
+                boolean abandoned = result.reason == StopReason.ABANDONED;
+                if(best == null || (best.reason == StopReason.ABANDONED && !abandoned) 
+                        || (abandoned == (best.reason == StopReason.ABANDONED) && result.J < best.J)) {
+                    best = result;
+                    best_r = r;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        // 最优运行的轨迹与标签：FCM中隶属度最大的类即距离最近的中心
+        if(center_rooters != null) {
+            for (int j = 0; j < clusternum; j++) {
+                center_rooters[j].li.addAll(rooters[best_r][j].li);
+            }
+        }
+        if(datas_label != null) {
+            double[] d = new double[clusternum];
+            for (int i = 0; i < run_datas.rows; i++) {
+                datas_label.set(i, FCMAlgorithm.nearest(run_datas, i, best.centers, clusternum, d)+1);
+            }
+        }
+        best.elapsed = (System.nanoTime() - start_time) / 1000000L;
+        return best;
+    }
+
+    /** 各运行共享的进度：每次迭代的最优J与已结束运行的最优最终J */
+    private static class Progress {
+        private final double[] best_at;
+        private double best_final = Double.MAX_VALUE;
+
+        Progress(int iternum) {
+            best_at = new double[Math.max(iternum, 1)];
+            Arrays.fill(best_at, Double.MAX_VALUE);
+        }
+
+        /** 记录第iter_i次迭代的J，返回可比较的最优值 */
+        synchronized double update(int iter_i, double J) {
+            if(J < best_at[iter_i]) {
+                best_at[iter_i] = J;
+            }
+            return Math.min(best_at[iter_i], best_final);
+        }
+
+        synchronized void finish(double J) {
+            if(J < best_final) {
+                best_final = J;
+            }
+        }
+    }
+
+    /** 在原结束条件之上增加放弃规则；各项阈值与base一致，fcm按maxIterations确定最后一次迭代 */
+    private static class AbandonPolicy extends ConvergencePolicy {
+        private final ConvergencePolicy base;
+        private final Progress progress;
+        private final double margin;
+        private final int after;
+
+        AbandonPolicy(ConvergencePolicy base, Progress progress, double margin, int after) {
+            this.base = base;
+            this.progress = progress;
+            this.margin = margin;
+            this.after = after;
+            this.absJ = base.absJ;
+            this.relJ = base.relJ;
+            this.deltaU = base.deltaU;
+            this.centerShift = base.centerShift;
+            this.maxIterations = base.maxIterations;
+            this.maxMillis = base.maxMillis;
+        }
+
+        public StopReason checkCenters(int iter_i, double shift, long elapsed) {
+            return base.checkCenters(iter_i, shift, elapsed);
+        }
+
+        public StopReason check(double[] J, int iter_i, double deltaU, double shift, long elapsed) {
+            StopReason reason = base.check(J, iter_i, deltaU, shift, elapsed);
+            double best = progress.update(iter_i, J[iter_i]);
+            if(reason != null || iter_i + 1 >= progress.best_at.length) {
+                progress.finish(J[iter_i]);
+                return reason;
+            }
+            if(margin > 0 && iter_i >= after && J[iter_i] > best * (1 + margin)) {
+                return StopReason.ABANDONED;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import com.ccit.bean.DataMatrix;
+import com.ccit.bean.FcmOptions;
+
+/**
+ * 在线FCM
+ * 逐点（或小批）接收数据并增量更新中心，不保存历史数据。
+ * 每个中心维护带遗忘的累计权重 W_j：新点x到来时先 W_j = λ·W_j，按当前中心算出隶属度u_j，
+ * 再令 W_j += u_j^m，c_j += (u_j^m/W_j)·(x - c_j)，即中心为历史点按 λ^age·u^m 加权的均值。
+ * 每个点的代价为 O(c·d)，不分配内存。前clusternum个不同的点直接作为初始中心。
+ * 非线程安全，多线程送入数据时需由调用方同步。
+ */
+public class OnlineFCM {
+    private final int clusternum;
+    private final int num_d;
+    private final FcmKernel kernel;
+    private final boolean reciprocal;
+    private final double forgetting;
+
+    private final double[][] c;         // 当前中心 [clusternum][num_d]
+    private final double[] weight;      // 各中心带遗忘的累计权重
+    private final double[] d;           // 单点距离缓冲
+    private final double[] u;           // 单点隶属度缓冲
+    private final double[] row;         // 从DataMatrix读取一行的缓冲
+    private int seeded = 0;             // 已确定的初始中心个数
+    private long count = 0;             // 已接收的点数
+
+    /**
+     * @param opt   使用其中的forgetting与reciprocal
+     */
+    public OnlineFCM(int clusternum, int num_d, int exponent, FcmOptions opt) {
+        if(opt.forgetting <= 0 || opt.forgetting > 1) {
+            throw new IllegalArgumentException("遗忘因子须在(0, 1]内");
+        }
+        this.clusternum = clusternum;
+        this.num_d = num_d;
+        this.kernel = FcmKernel.forExponent(exponent);
+        this.reciprocal = opt.reciprocal;
+        this.forgetting = opt.forgetting;
+        c = new double[clusternum][num_d];
+        weight = new double[clusternum];
+        d = new double[clusternum];
+        u = new double[clusternum];
+        row = new double[num_d];
+    }
+
+    /**
+     * 接收一个点并更新中心
+     */
+    public void add(double[] x) {
+        count++;
+        for (int j = 0; j < seeded; j++) {
+            weight[j] *= forgetting;
+        }
+        distances(x, seeded);
+        if(seeded < clusternum) {       // 初始中心未满：新的不同点直接作为中心，重复点并入已有中心
+            for (int j = 0; j < seeded; j++) {
+                if(d[j] == 0) {
+                    weight[j] += 1;
+                    return;
+                }
+            }
+            System.arraycopy(x, 0, c[seeded], 0, num_d);
+            weight[seeded] = 1;
+            seeded++;
+            return;
+        }
+        FCMAlgorithm.membershipPoint(d, u, clusternum, kernel, reciprocal);
+        for (int j = 0; j < clusternum; j++) {
+            double w = kernel.um(u[j]);
+            weight[j] += w;
+            double rate = w / weight[j];
+            double[] c_j = c[j];
+            for (int k = 0; k < num_d; k++) {
+                c_j[k] += rate * (x[k] - c_j[k]);
+            }
+        }
+    }
+
+    /**
+     * 依次接收datas中[from, to)范围内的点
+     */
+    public void addAll(DataMatrix datas, int from, int to) {
+        for (int i = from; i < to; i++) {
+            add(datas.getRow(i, row));
+        }
+    }
+
+    /**
+     * 按当前中心计算任意点的隶属度，写入dest（长度不小于clusternum）；初始中心未满时返回false
+     */
+    public boolean memberships(double[] x, double[] dest) {
+        if(seeded < clusternum) {
+            return false;
+        }
+        distances(x, clusternum);
+        FCMAlgorithm.membershipPoint(d, dest, clusternum, kernel, reciprocal);
+        return true;
+    }
+
+    /**
+     * 按当前中心得到点的标签（隶属度最大的类，从1开始）；初始中心未满时返回0
+     */
+    public int label(double[] x) {
+        if(!memberships(x, u)) {
+            return 0;
+        }
+        int index = 0;
+        for (int j = 1; j < clusternum; j++) {
+            if(u[index] < u[j]) {
+                index = j;
+            }
+        }
+        return index+1;
+    }
+
+    /** 当前中心，由本对象持有，调用方不应修改 */
+    public double[][] centers() {
+        return c;
+    }
+
+    /** 各中心带遗忘的累计权重 */
+    public double[] weights() {
+        return weight;
+    }
+
+    /** 已接收的点数 */
+    public long count() {
+        return count;
+    }
+
+    /** 初始中心是否已满 */
+    public boolean ready() {
+        return seeded == clusternum;
+    }
+
+    private void distances(double[] x, int n) {
+        for (int j = 0; j < n; j++) {
+            double[] c_j = c[j];
+            double sum = 0;
+            for (int k = 0; k < num_d; k++) {
+                double diff = x[k] - c_j[k];
+                sum += diff * diff;
+            }
+            d[j] = sum;
+        }
+    }
+}
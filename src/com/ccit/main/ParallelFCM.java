@@ -0,0 +1,228 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.ccit.bean.CenterRooter;
+import com.ccit.bean.DataMatrix;
+import com.ccit.bean.FcmOptions;
+
+/**
+ * 多核并行的FCM迭代
+ * 数据按行切成固定的块，在ForkJoinPool上并行处理；每块有自己的中心累加器
+ * （分子、分母）和目标函数部分和，按块号顺序归约，结果与线程数无关。
+ * 每次迭代两个并行阶段：累加中心；计算距离、更新隶属度和目标函数。
+ * 单遍模式下每次迭代只有一个并行阶段，同时完成以上全部工作；单精度、稀疏、按点优先与只保存中心的模式总按单遍方式执行；
+ * 活动集模式的部分扫描中各块只累加未冻结点的增量，归约时加到上一次的和上。
+ */
+public class ParallelFCM {
+    private static final int MIN_BLOCK = 1024;         // 每块最少行数
+    private static final int BLOCKS_PER_THREAD = 4;
+
+    private static final int PHASE_CENTERS = 0;
+    private static final int PHASE_MEMBERSHIP = 1;
+    private static final int PHASE_FUSED = 2;
+
+    private final ForkJoinPool pool;
+    private final int clusternum;
+    private final int num_d;
+    private final int[] bounds;             // 第b块为[bounds[b], bounds[b+1])
+    private final double[][][] part_num;    // 每块的中心分子 [block][cluster][dim]
+    private final double[][] part_den;      // 每块的中心分母 [block][cluster]
+    private final double[][] part_acc;      // 每块的统计量（目标函数部分和、隶属度最大变化、有效性指标部分和）
+    private final double[][] part_frozen;   // 活动集模式下每块冻结点的统计量，完整扫描时清零
+    private final double[][] part_dist;     // 每块单点的距离缓冲 [block][cluster]
+    private final double[][] part_u;        // 每块单点的隶属度缓冲 [block][cluster]
+    private final int[][] part_top_idx;     // 每块稀疏模式下单点的类号缓冲 [block][cluster]
+    private final double[][] part_top_val;  // 每块稀疏模式下单点的隶属度缓冲 [block][cluster]
+    private final BlockTask centers_task;   // 任务树只构建一次，每次迭代重置后复用
+    private final BlockTask membership_task;
+    private final BlockTask fused_task;
+
+    // 当前迭代的输入，供各块任务读取
+    private DataMatrix datas;
+    private FcmWorkspace ws;
+    private FcmOptions opt;
+
+    public ParallelFCM(int threads, int num_data, int clusternum, int num_d) {
+        this(new ForkJoinPool(threads), threads, num_data, clusternum, num_d);
+    }
+
+    public ParallelFCM(ForkJoinPool pool, int threads, int num_data, int clusternum, int num_d) {
+        this.pool = pool;
+        this.clusternum = clusternum;
+        this.num_d = num_d;
+        int blocks = Math.max(1, Math.min(threads * BLOCKS_PER_THREAD, (num_data + MIN_BLOCK - 1) / MIN_BLOCK));
+        bounds = new int[blocks + 1];
+        for (int b = 0; b <= blocks; b++) {
+            bounds[b] = (int) ((long) num_data * b / blocks);
+        }
+        part_num = new double[blocks][clusternum][num_d];
+        part_den = new double[blocks][clusternum];
+        part_acc = new double[blocks][FCMAlgorithm.ACC_SIZE];
+        part_frozen = new double[blocks][FCMAlgorithm.ACC_SIZE];
+        part_dist = new double[blocks][clusternum];
+        part_u = new double[blocks][clusternum];
+        part_top_idx = new int[blocks][clusternum];
+        part_top_val = new double[blocks][clusternum];
+        centers_task = new BlockTask(PHASE_CENTERS, 0, blocks);
+        membership_task = new BlockTask(PHASE_MEMBERSHIP, 0, blocks);
+        fused_task = new BlockTask(PHASE_FUSED, 0, blocks);
+    }
+
+    /**
+     * 并行执行一次迭代，语义与FCMAlgorithm.OneSteo相同；opt.fused为true时每次迭代只扫描一遍数据
+     */
+    public void OneSteo(DataMatrix datas, CenterRooter[] center_rooters, FcmWorkspace ws, int iter_i, FcmOptions opt) {
+        this.datas = datas;
+        this.ws = ws;
+        this.opt = opt;
+        try {
+            if(opt.fused || opt.single || ws.topk > 0 || ws.centersOnly || ws.pointMajor) {
+                if(iter_i == 0 && !ws.centersOnly) {     // 只保存中心时初始的累加和已由初始化给出
+                    run(centers_task);
+                    reduce(ws.num, ws.den);
+                }
+                /**由上一遍扫描累加的和得到中心*/
+                ws.shift = FCMAlgorithm.finishCenters(center_rooters, clusternum, num_d, ws.num, ws.den, ws.c);
+                FCMAlgorithm.startActive(ws, opt, iter_i);
+                
+                /**一遍扫描：距离、隶属度、目标函数、下一次的中心累加；活动集的部分扫描各块累加的是增量*/
+                run(fused_task);
+                if(ws.activeFull) {
+                    reduce(ws.num, ws.den);
+                } else {
+                    reduceAdd(ws.num, ws.den);
+                }
+            } else {
+                /**计算中心值：各块累加后按块号顺序归约*/
+                run(centers_task);
+                reduce(ws.num, ws.den);
+                ws.shift = FCMAlgorithm.finishCenters(center_rooters, clusternum, num_d, ws.num, ws.den, ws.c);
+                
+                /** 更新U，计算目标J函数 */
+                run(membership_task);
+            }
+            double[] acc = ws.acc;
+            FCMAlgorithm.clearAcc(acc);
+            for (int b = 0; b < part_acc.length; b++) {
+                FCMAlgorithm.mergeAcc(acc, part_acc[b]);
+            }
+            for (int b = 0; ws.activeSet && b < part_frozen.length; b++) {
+                FCMAlgorithm.mergeAcc(acc, part_frozen[b]);
+            }
+            ws.J[iter_i] = acc[FCMAlgorithm.ACC_J];
+            ws.deltaU = acc[FCMAlgorithm.ACC_DU];
+        } finally {
+            this.datas = null;
+            this.ws = null;
+            this.opt = null;
+        }
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private void run(BlockTask task) {
+        task.reinitialize();
+        pool.invoke(task);
+    }
+
+    /** 按块号顺序把各块的累加结果归约到num/den */
+    private void reduce(double[][] num, double[] den) {
+        int blocks = part_acc.length;
+        for (int j = 0; j < clusternum; j++) {
+            double[] num_j = num[j];
+            for (int k = 0; k < num_d; k++) {
+                num_j[k] = 0;
+            }
+            den[j] = 0;
+            for (int b = 0; b < blocks; b++) {
+                double[] num_bj = part_num[b][j];
+                for (int k = 0; k < num_d; k++) {
+                    num_j[k] += num_bj[k];
+                }
+                den[j] += part_den[b][j];
+            }
+        }
+    }
+
+    /** 按块号顺序把各块累加的增量加到num/den上 */
+    private void reduceAdd(double[][] num, double[] den) {
+        int blocks = part_acc.length;
+        for (int j = 0; j < clusternum; j++) {
+            double[] num_j = num[j];
+            for (int b = 0; b < blocks; b++) {
+                double[] num_bj = part_num[b][j];
+                for (int k = 0; k < num_d; k++) {
+                    num_j[k] += num_bj[k];
+                }
+                den[j] += part_den[b][j];
+            }
+        }
+    }
+
+    private void runBlock(int phase, int b) {
+        int from = bounds[b];
+        int to = bounds[b + 1];
+        double[] acc = part_acc[b];
+        FCMAlgorithm.clearAcc(acc);
+        if(phase == PHASE_MEMBERSHIP) {
+            FCMAlgorithm.distances(datas, ws.c, ws.D, clusternum, from, to);
+            if(opt.reciprocal) {
+                acc[FCMAlgorithm.ACC_DU] = FCMAlgorithm.membershipsReciprocal(ws.D, ws.U, clusternum, ws.kernel, from, to, 
+                        part_u[b], ws.labels);
+            } else {
+                acc[FCMAlgorithm.ACC_DU] = FCMAlgorithm.membershipsRatio(ws.D, ws.U, clusternum, ws.kernel, from, to, ws.labels);
+            }
+            FCMAlgorithm.objective(ws.U, ws.D, clusternum, ws.kernel, from, to, acc, opt.validity);
+            return;
+        }
+        FCMAlgorithm.clearSums(part_num[b], part_den[b], clusternum, num_d);
+        if(phase == PHASE_CENTERS) {
+            FCMAlgorithm.accumulateCenters(datas, ws, opt, from, to, part_num[b], part_den[b]);
+        } else {
+            if(ws.activeFull) {
+                FCMAlgorithm.clearAcc(part_frozen[b]);
+            }
+            FCMAlgorithm.fusedSweep(datas, ws, opt, from, to, part_num[b], part_den[b], 
+                    part_dist[b], part_u[b], part_top_idx[b], part_top_val[b], acc, part_frozen[b]);
+        }
+    }
+
+    /** 对[lo, hi)号块二分递归；子任务在构造时建好 */
+    private class BlockTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int phase;
+        private final int lo;
+        private final BlockTask left;
+        private final BlockTask right;
+
+        BlockTask(int phase, int lo, int hi) {
+            this.phase = phase;
+            this.lo = lo;
+            if(hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                left = new BlockTask(phase, lo, mid);
+                right = new BlockTask(phase, mid, hi);
+            } else {
+                left = null;
+                right = null;
+            }
+        }
+
+        protected void compute() {
+            if(left == null) {
+                runBlock(phase, lo);
+                return;
+            }
+            left.reinitialize();
+            right.reinitialize();
+            invokeAll(left, right);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+/**
+ * 按行的内层运算：距离平方、u^m·x 的累加、隶属度的求和与缩放，供各迭代内核调用
+ * 默认为逐元素的标量实现。src-vector中的VectorRowKernel基于jdk.incubator.vector，按向量通道计算，
+ * 须单独编译（javac --add-modules jdk.incubator.vector）并放在classpath上，运行时同样加上
+ * --add-modules jdk.incubator.vector；类或模块不可用（或-Dfcm.simd=false）时自动使用标量实现。
+ * 向量实现只用于连续存放的双精度行（colStride为1），其余情况仍按标量计算；
+ * 求和的结合顺序不同，结果与标量实现在末位上可能不同。
+ */
+public abstract class RowKernel {
+    private static final String VECTOR_CLASS = "com.ccit.main.VectorRowKernel";
+
+    /** 标量实现 */
+    public static final RowKernel SCALAR = new RowKernel() {
+        public String name() {
+            return "scalar";
+        }
+        public double distance(double[] x, int off, int cs, double[] c, int num_d) {
+            double sum = 0;
+            for (int k = 0; k < num_d; k++) {
+                double diff = x[off + k * cs] - c[k];
+                sum += diff * diff;
+            }
+            return sum;
+        }
+        public void axpy(double w, double[] x, int off, int cs, double[] y, int num_d) {
+            for (int k = 0; k < num_d; k++) {
+                y[k] += w * x[off + k * cs];
+            }
+        }
+        public double sum(double[] u, int n) {
+            double sum = 0;
+            for (int j = 0; j < n; j++) {
+                sum += u[j];
+            }
+            return sum;
+        }
+        public void scale(double[] u, int n, double f) {
+            for (int j = 0; j < n; j++) {
+                u[j] *= f;
+            }
+        }
+    };
+
+    /** 本进程使用的实现，类加载时选定一次 */
+    public static final RowKernel ACTIVE = load();
+
+    /** 实现名称，用于日志与测试输出 */
+    public abstract String name();
+
+    /** 行x（从off开始，间隔cs，共num_d个数）到c的距离平方 */
+    public abstract double distance(double[] x, int off, int cs, double[] c, int num_d);
+
+    /** y += w·x，x同上 */
+    public abstract void axpy(double w, double[] x, int off, int cs, double[] y, int num_d);
+
+    /** u[0..n)之和 */
+    public abstract double sum(double[] u, int n);
+
+    /** u[0..n) *= f */
+    public abstract void scale(double[] u, int n, double f);
+
+    private static RowKernel load() {
+        if(!Boolean.parseBoolean(System.getProperty("fcm.simd", "true"))) {
+            return SCALAR;
+        }
+        try {
+            RowKernel kernel = (RowKernel) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+            // 自检：结果须与标量实现一致（允许舍入误差）
+            double[] x = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 };
+            double[] c = { 0.5, 1, 1.5, 2, 2.5, 3, 3.5, 4, 4.5, 5, 5.5 };
+            if(Math.abs(kernel.distance(x, 0, 1, c, x.length) - SCALAR.distance(x, 0, 1, c, x.length)) > 1e-9) {
+                return SCALAR;
+            }
+            return kernel;
+        } catch (Throwable e) {         // 类不存在、模块未加载（NoClassDefFoundError）等
+            return SCALAR;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.List;
+import java.util.Random;
+
+import com.ccit.bean.CenterRooter;
+import com.ccit.bean.DataMatrix;
+import com.ccit.bean.FcmOptions;
+import com.ccit.bean.FcmResult;
+import com.ccit.util.CSVFileUtil;
+import com.ccit.util.CommUtils;
+
+/**
+ * 单遍流式FCM（spFCM）
+ * 按块读入CSV文件，每块用加权FCM聚类；上一块得到的中心作为带权点（权重为其隶属度质量）并入下一块，
+ * 以上一块的中心为初值继续迭代。内存只与块大小和 c·d 有关，可以处理远大于内存的文件。
+ * 可选第二遍扫描，按最终中心为每行写出标签。
+ */
+public class StreamingFCM {
+
+    /**
+     * 流式fcm
+     * @param input             输入CSV文件，列数以第一个非空行为准，多余的列忽略，缺少的列按0处理
+     * @param output            标签输出文件（原数据各列后加标签列）；为null时不做第二遍扫描
+     * @param center_rooters    每块结束后的中心轨迹，为null时不记录
+     * @param clusternum        类别数量
+     * @param iternum           每块的迭代次数上限
+     * @param exponent          指数
+     * @param opt               运行参数：chunkRows、single、reciprocal、stop；第一块的初始中心按init、initCenters、seedSample
+     * @return                  运行结果，iterations为各块迭代次数之和；写出标签时J为全体数据的目标函数值，
+     *                          否则为最后一块的加权目标函数值；文件为空或参数无效时返回null
+     */
+    public static FcmResult fcm(File input, File output, CenterRooter[] center_rooters, 
+            int clusternum, int iternum, int exponent, FcmOptions opt) throws Exception {
+        if(exponent <= 1 || clusternum < 1) {
+            return null;
+        }
+        long start_time = System.nanoTime();
+        FcmKernel kernel = FcmKernel.forExponent(exponent);
+        int chunk_rows = Math.max(opt.chunkRows, clusternum);
+        Random random = FCMAlgorithm.random(opt);
+        
+        DataMatrix chunk = null;
+        double[] weights = null;
+        double[] row = null;
+        double[][] c = null;
+        double[] mass = new double[clusternum];
+        int iterations = 0;
+        FcmResult last = null;
+        
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(input), CSVFileUtil.ENCODE));
+        try {
+            CSVFileUtil csvFileUtil = new CSVFileUtil(br);
+            while (true) {
+                /** 读入一块 */
+                if(chunk != null) {
+                    chunk.clear();
+                }
+                String inString = "";
+                while ((chunk == null || chunk.rows < chunk_rows) && (inString = csvFileUtil.readLine()) != null) {
+                    List<String> ling_list = csvFileUtil.fromCSVLinetoArray(inString);
+                    if(ling_list.isEmpty()) {
+                        continue;
+                    }
+                    if(chunk == null) {
+                        chunk = new DataMatrix(0, ling_list.size(), DataMatrix.ROW_MAJOR, opt.single);
+                        row = new double[chunk.cols];
+                        weights = new double[chunk_rows + clusternum];
+                    }
+                    parseRow(ling_list, row);
+                    chunk.addRow(row);
+                }
+                int rows = chunk == null ? 0 : chunk.rows;
+                if(rows == 0) {
+                    break;
+                }
+                
+                /** 上一块的中心作为带权点并入本块 */
+                for (int i = 0; i < rows; i++) {
+                    weights[i] = 1;
+                }
+                if(c == null) {
+                    c = FcmSeeding.seedCenters(chunk, clusternum, opt, random);     // 第一块：热启动、FCM++或随机数据点
+                } else {
+                    for (int j = 0; j < clusternum; j++) {
+                        chunk.addRow(c[j]);
+                        weights[rows + j] = mass[j];
+                    }
+                }
+                last = WeightedFCM.fcm(chunk, weights, c, clusternum, iternum, kernel, opt, mass);
+                iterations += last.iterations;
+                
+                // 保存中点变动轨迹
+                if(center_rooters != null) {
+                    for (int j = 0; j < clusternum; j++) {
+                        double[] center = new double[c[j].length];
+                        System.arraycopy(c[j], 0, center, 0, center.length);
+                        ((center_rooters[j]).li).add(center);
+                    }
+                }
+                if(inString == null) {      // 文件已读完
+                    break;
+                }
+            }
+        } finally {
+            br.close();
+        }
+        if(c == null) {
+            return null;
+        }
+        
+        FcmResult result = new FcmResult();
+        result.iterations = iterations;
+        result.J = last.J;
+        result.centers = c;
+        result.reason = last.reason;
+        if(output != null) {
+            result.J = writeLabels(input, output, c, clusternum, kernel, opt);
+        }
+        result.elapsed = (System.nanoTime() - start_time) / 1000000L;
+        return result;
+    }
+
+    /**
+     * 第二遍扫描：按中心c逐行计算隶属度，以隶属度最大的类（从1开始）作为标签写出
+     * @return  全体数据的目标函数值
+     */
+    public static double writeLabels(File input, File output, double[][] c, int clusternum, FcmKernel kernel, FcmOptions opt) throws Exception {
+        int num_d = c[0].length;
+        double[] row = new double[num_d];
+        double[] d = new double[clusternum];
+        double[] u = new double[clusternum];
+        String[] strArray = new String[num_d + 1];
+        double J = 0;
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(input), CSVFileUtil.ENCODE));
+        BufferedWriter csvFileOutputStream = null;
+        try {
+            csvFileOutputStream = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), "UTF-8"), 1024);
+            CSVFileUtil csvFileUtil = new CSVFileUtil(br);
+            String inString;
+            while ((inString = csvFileUtil.readLine()) != null) {
+                List<String> ling_list = csvFileUtil.fromCSVLinetoArray(inString);
+                if(ling_list.isEmpty()) {
+                    continue;
+                }
+                parseRow(ling_list, row);
+                for (int j = 0; j < clusternum; j++) {
+                    double[] c_j = c[j];
+                    double sum = 0;
+                    for (int k = 0; k < num_d; k++) {
+                        double diff = row[k] - c_j[k];
+                        sum += diff * diff;
+                    }
+                    d[j] = sum;
+                }
+                FCMAlgorithm.membershipPoint(d, u, clusternum, kernel, opt.reciprocal);
+                int index = 0;
+                for (int j = 0; j < clusternum; j++) {
+                    J += kernel.um(u[j]) * d[j];
+                    if(u[index] < u[j]) {
+                        index = j;
+                    }
+                }
+                for (int k = 0; k < num_d; k++) {
+                    strArray[k] = row[k]+"";
+                }
+                strArray[num_d] = (index+1)+"";
+                csvFileOutputStream.write(CSVFileUtil.toCSVLine(strArray));
+                csvFileOutputStream.newLine();
+            }
+            csvFileOutputStream.flush();
+        } finally {
+            br.close();
+            if(csvFileOutputStream != null) {
+                csvFileOutputStream.close();
+            }
+        }
+        return J;
+    }
+
+    static void parseRow(List<String> ling_list, double[] row) {
+        for (int k = 0; k < row.length; k++) {
+            row[k] = k < ling_list.size() ? CommUtils.null2Double(ling_list.get(k)) : 0;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import com.ccit.bean.CenterRooter;
+import com.ccit.bean.DataMatrix;
+import com.ccit.bean.FcmOptions;
+import com.ccit.bean.FcmResult;
+import com.ccit.bean.StopReason;
+
+/**
+ * 加权FCM
+ * 每个点带权重w_i：中心 c_j = Σw_i·u_ij^m·x_i / Σw_i·u_ij^m，目标函数 J = Σw_i·u_ij^m·d_ij²，隶属度公式不变。
+ * 不保存隶属度矩阵，从给定的中心出发，每次迭代一遍扫描：按当前中心算出各点隶属度并累加加权和，再更新中心。
+ * 流式、网格压缩等先把数据归并为带权代表点的方式共用这一实现。
+ */
+public class WeightedFCM {
+
+    /**
+     * 加权fcm
+     * @param datas         数据，可为单精度存储
+     * @param weights       各点权重，长度不小于datas.rows；为null时权重均为1
+     * @param c             初始中心 [clusternum][num_d]，结束时为最终中心
+     * @param clusternum    类别数量
+     * @param iternum       迭代次数上限
+     * @param kernel        按指数选定的幂运算内核
+     * @param opt           运行参数；不保存隶属度，opt.stop的ΔU条件不起作用
+     * @param mass          输出最后一遍扫描中各中心的隶属度质量 Σw_i·u_ij，可为null
+     * @return              运行结果，J为最后一次迭代（更新中心之前）的加权目标函数值；centers即为c
+     */
+    public static FcmResult fcm(DataMatrix datas, double[] weights, double[][] c, int clusternum, int iternum, 
+            FcmKernel kernel, FcmOptions opt, double[] mass) {
+        return fcm(datas, weights, c, null, clusternum, iternum, kernel, opt, mass);
+    }
+
+    /**
+     * 加权fcm，每次迭代后的中心记入center_rooters（为null时不记录）
+     */
+    public static FcmResult fcm(DataMatrix datas, double[] weights, double[][] c, CenterRooter[] center_rooters, 
+            int clusternum, int iternum, FcmKernel kernel, FcmOptions opt, double[] mass) {
+        long start_time = System.nanoTime();
+        int num_d = datas.cols;
+        double[][] num = new double[clusternum][num_d];
+        double[] den = new double[clusternum];
+        double[] d = new double[clusternum];
+        double[] u = new double[clusternum];
+        double[] J = new double[Math.max(iternum, 1)];
+        
+        int iter_i = 0;
+        StopReason reason = null;
+        while (iter_i < iternum) {
+            FCMAlgorithm.clearSums(num, den, clusternum, num_d);
+            J[iter_i] = sweep(datas, weights, c, clusternum, kernel, opt.reciprocal, num, den, mass, d, u);
+            double shift = FCMAlgorithm.finishCenters(center_rooters, clusternum, num_d, num, den, c);
+            long elapsed = (System.nanoTime() - start_time) / 1000000L;
+            reason = opt.stop.check(J, iter_i, Double.NaN, shift, elapsed);
+            iter_i++;
+            if(reason != null) {
+                break;
+            }
+        }
+        
+        FcmResult result = new FcmResult();
+        result.iterations = iter_i;
+        result.J = iter_i > 0 ? J[iter_i - 1] : 0;
+        result.centers = c;
+        result.reason = reason != null ? reason : StopReason.ITERATIONS;
+        result.elapsed = (System.nanoTime() - start_time) / 1000000L;
+        return result;
+    }
+
+    /**
+     * 按中心c扫描全部点一遍，累加 num[j] += w·u^m·x、den[j] += w·u^m、mass[j] += w·u
+     * @return  加权目标函数值
+     */
+    public static double sweep(DataMatrix datas, double[] weights, double[][] c, int clusternum, FcmKernel kernel, 
+            boolean reciprocal, double[][] num, double[] den, double[] mass, double[] d, double[] u) {
+        int num_data = datas.rows;
+        int num_d = datas.cols;
+        if(mass != null) {
+            for (int j = 0; j < clusternum; j++) {
+                mass[j] = 0;
+            }
+        }
+        double sum_J = 0;
+        for (int i = 0; i < num_data; i++) {
+            double w_i = weights != null ? weights[i] : 1;
+            FCMAlgorithm.pointDistances(datas, i, c, clusternum, d);
+            FCMAlgorithm.membershipPoint(d, u, clusternum, kernel, reciprocal);
+            for (int j = 0; j < clusternum; j++) {
+                double w = w_i * kernel.um(u[j]);
+                sum_J += w * d[j];
+                den[j] += w;
+                double[] num_j = num[j];
+                for (int k = 0; k < num_d; k++) {
+                    num_j[k] += w * datas.get(i, k);
+                }
+                if(mass != null) {
+                    mass[j] += w_i * u[j];
+                }
+            }
+        }
+        return sum_J;
+    }
+}
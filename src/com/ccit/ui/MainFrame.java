@@ -53,7 +53,14 @@ import cartesian.coordinate.CCPolygon;
 import cartesian.coordinate.CCSystem;
 
 import com.ccit.bean.CenterRooter;
+import com.ccit.bean.DataMatrix;
+import com.ccit.bean.FcmOptions;
+import com.ccit.bean.FcmResult;
+import com.ccit.bean.LabelArray;
 import com.ccit.main.FCMAlgorithm;
+import com.ccit.main.FcmKernel;
+import com.ccit.main.FcmSeeding;
+import com.ccit.main.FcmWorkspace;
 import com.ccit.util.CSVFileUtil;
 import com.ccit.util.CommUtils;
 import com.ccit.util.ExportDialog;
@@ -95,11 +102,14 @@ public class MainFrame extends JFrame implements ActionListener {
 	int SHOW_COLUMN_X = 0;									// 显示行坐标；默认数据第1列
 	int SHOW_COLUMN_Y = 1;									// 显示行坐标；默认数据第2列
 	
-	List<double[]> datas = new ArrayList<double[]>();
-	List<Integer> datas_label = new ArrayList<Integer>();
+	DataMatrix datas = new DataMatrix(0, 0);
+	LabelArray datas_label = new LabelArray(0, 0);
 	
 	List<Color> color_lists = new ArrayList<Color>();		// 最大颜色个数与最大分类数相等
 	CenterRooter[] center_rooters = new CenterRooter[clusternum];	// 中心点移动轨迹
+	FcmOptions fcm_options = new FcmOptions();				// 算法运行参数
+	FcmResult last_result = null;							// 当前数据上一次运行的结果，调整参数后重新运行时用于热启动
+	int last_clusternum = 0, last_iternum = 0, last_exponent = 0;		// last_result所用的参数
 	
 	private volatile boolean shutdownRequested = false;		// 终止标志
 	Thread paintPointThread = null;
@@ -107,6 +117,8 @@ public class MainFrame extends JFrame implements ActionListener {
 
     @SuppressWarnings("unchecked")
 	public MainFrame() {
+    	fcm_options.threads = Runtime.getRuntime().availableProcessors();
+    	fcm_options.fused = true;
     	JMenuBar menuBar = createMenus();
     	setJMenuBar(menuBar);
     	
@@ -396,55 +408,44 @@ public class MainFrame extends JFrame implements ActionListener {
 	    						center_rooters[j] = center_rooter;
 	    					}
 	    					// -----------------------------------------------------------------------
-	    					if(datas == null || datas.size() < 1 || exponent <= 1) {
+	    					if(datas == null || datas.rows < 1 || exponent <= 1) {
 	    			            return;
 	    			        }
-	    			        int num_data = datas.size();        // 数据行数
-	    			        int num_d = datas.get(0).length;    // 数据维数
-	    			        // 隶属度
-	    			        double[][] U = new double[clusternum][num_data];
-	    			        for (int i = 0; i < clusternum; i++) {
-	    			            for (int j = 0; j < num_data; j++) {    // 随机赋值
-	    			                U[i][j] = FCMAlgorithm.randGen.nextDouble()*10;
-	    			            }
-	    			        }
-	    			        
-	    			        for (int j = 0; j < num_data; j++) {        // 归一化
-	    			            double sum_d = 0;
-	    			            for (int i = 0; i < clusternum; i++) {      
-	    			                sum_d += U[i][j];
-	    			            }
-	    			            for (int i = 0; i < clusternum; i++) {      
-	    			                U[i][j] = U[i][j] / sum_d;
-	    			            }
-	    			        }
+	    			        int num_data = datas.rows;          // 数据行数
+	    			        int num_d = datas.cols;             // 数据维数
+	    			        FcmOptions run_options = fcm_options.copy().warmStart(warmStartResult());
+	    			        DataMatrix run_datas = datas.toPrecision(run_options.single);
+	    			        FcmWorkspace ws = FcmWorkspace.acquire(num_data, num_d, clusternum, iternum, run_options);
+	    			        try {
+	    			        	ws.kernel = FcmKernel.forExponent(exponent);
+	    			        	// 隶属度
+	    			        	if(!datas_label.holds(clusternum)) {		// 类别数调大后换用更宽的标签数组
+	    			        		datas_label = new LabelArray(num_data, clusternum);
+	    			        	}
+	    			        	ws.labels = datas_label;		// 每次迭代计算隶属度时顺带写入标签，供重绘使用
+	    			        	FcmSeeding.initMemberships(run_datas, ws, run_options);
+	    			        	int done = 0;
 	    			        
-	    			        /**循环--规定迭代次数作为结束条件*/
-	    			        double[][] c = new double[clusternum][num_d];
-	    			        double[] J = new double[iternum];
-	    			        for (int iter_i = 0; !shutdownRequested && iter_i < iternum; iter_i++) {
-	    			        	try{
-	    			        		boolean brk = FCMAlgorithm.OneSteo(datas, center_rooters, clusternum, exponent, num_data, num_d, U, c, J, iter_i);
-	    			        		for (int j = 0; j < num_data; j++) {
-	    			        			int index = 0;
-	    			        			double max = U[index][j];
-	    			        			for (int i = 1; i < clusternum; i++) {
-	    			        				if(max < U[i][j]) {
-	    			        					index = i;
-	    			        					max = U[index][j];
-	    			        				}
+	    			        	/**循环--规定迭代次数作为结束条件*/
+	    			        	for (int iter_i = 0; !shutdownRequested && iter_i < iternum; iter_i++) {
+	    			        		try{
+	    			        			boolean brk = FCMAlgorithm.OneSteo(run_datas, center_rooters, ws, iter_i, run_options);
+	    			        			done = iter_i + 1;
+	    			        			repaintCoordinate(false);
+	    			        			// 动画速度控制
+	    			        			Thread.sleep(600/speed);
+	    			        			if(brk) {
+	    			        				break;
 	    			        			}
-	    			        			datas_label.set(j, index+1);
+	    			        		}catch(Exception e) {
+	    			        			shutdownRequested = true;
 	    			        		}
-	    			        		repaintCoordinate(false);
-	    			        		// 动画速度控制
-	    			        		Thread.sleep(600/speed);
-	    			        		if(brk) {
-	    			        			break;
-	    			        		}
-	    			        	}catch(Exception e) {
-	    			        		shutdownRequested = true;
 	    			        	}
+	    			        	if(done > 0) {
+	    			        		setLastResult(ws.result(done));
+	    			        	}
+	    			        } finally {
+	    			        	FcmWorkspace.release(ws);
 	    			        }
 	    			        startbtn.setEnabled(true);
 	    		        	stopbtn.setEnabled(false);
@@ -463,8 +464,12 @@ public class MainFrame extends JFrame implements ActionListener {
 								CenterRooter center_rooter = new CenterRooter();
 								center_rooters[i] = center_rooter;
 							}
-							// 一次性调用
-							FCMAlgorithm.fcm(datas, datas_label, center_rooters, clusternum, iternum, exponent);
+							// 一次性调用；不显示过程时不绘制轨迹，无需记录
+							if(!datas_label.holds(clusternum)) {
+								datas_label = new LabelArray(datas.rows, clusternum);
+							}
+							setLastResult(FCMAlgorithm.fcm(datas, datas_label, null, clusternum, iternum, exponent, 
+									fcm_options.copy().warmStart(warmStartResult())));
 							repaintCoordinate(false);
 							startbtn.setEnabled(true);
 							stopbtn.setEnabled(false);
@@ -488,6 +493,25 @@ public class MainFrame extends JFrame implements ActionListener {
         }
     }
     
+    /**
+     * 热启动所用的上一次结果：分类数不变、只调了指数或迭代次数时返回last_result；
+     * 参数都没变时返回null，再按开始就是一次新的随机初始化
+     */
+    private FcmResult warmStartResult() {
+    	if(last_result == null || clusternum != last_clusternum) {
+    		return null;
+    	}
+    	return exponent != last_exponent || iternum != last_iternum ? last_result : null;
+    }
+    
+    /** 记录本次结果及其参数 */
+    private void setLastResult(FcmResult result) {
+    	last_result = result;
+    	last_clusternum = clusternum;
+    	last_iternum = iternum;
+    	last_exponent = exponent;
+    }
+    
     /**滑动条监听*/
 	class SliderListener implements ChangeListener {
 		JLabel label;
@@ -525,23 +549,24 @@ public class MainFrame extends JFrame implements ActionListener {
 			        		 imagePanel.clear();
 			        		 double loX=Double.MAX_VALUE, hiX=Double.MIN_VALUE, loY=Double.MAX_VALUE, hiY=Double.MIN_VALUE;
 			        		 // 画分类结果
-			        		 for (int i = 0; i < datas.size(); i++) {
-			        			 double[] ds = datas.get(i);
+			        		 for (int i = 0; i < datas.rows; i++) {
+			        			 double x = datas.get(i, SHOW_COLUMN_X);
+			        			 double y = datas.get(i, SHOW_COLUMN_Y);
 			        			 if(firsttime) {
-			        				 if(loX > ds[SHOW_COLUMN_X]) {
-			        					 loX = ds[SHOW_COLUMN_X];
+			        				 if(loX > x) {
+			        					 loX = x;
 			        				 }
-			        				 if(hiX < ds[SHOW_COLUMN_X]) {
-			        					 hiX = ds[SHOW_COLUMN_X];
+			        				 if(hiX < x) {
+			        					 hiX = x;
 			        				 }
-			        				 if(loY > ds[SHOW_COLUMN_Y]) {
-			        					 loY = ds[SHOW_COLUMN_Y];
+			        				 if(loY > y) {
+			        					 loY = y;
 			        				 }
-			        				 if(hiY < ds[SHOW_COLUMN_Y]) {
-			        					 hiY = ds[SHOW_COLUMN_Y];
+			        				 if(hiY < y) {
+			        					 hiY = y;
 			        				 }
 			        			 }
-			        			 imagePanel.add(new CCPoint(ds[SHOW_COLUMN_X], ds[SHOW_COLUMN_Y], color_lists.get(datas_label.get(i))));
+			        			 imagePanel.add(new CCPoint(x, y, color_lists.get(datas_label.get(i))));
 			        		 }
 			        		 // 画中心点移动轨迹
 			        		 if(flag_speed) {
@@ -656,16 +681,19 @@ public class MainFrame extends JFrame implements ActionListener {
 				try {
 					boolean cancel = false;
 					// OLD_FILEPATH = fc.getSelectedFile().getPath();
-					List<List<String>> file_lists = new ArrayList<List<String>>();
+					DataMatrix file_datas = null;				// 读取时直接填充连续存储的矩阵
+					double[] row = new double[0];
 					int max_num = Integer.MAX_VALUE;		// 最大的行个数
 					BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(fc.getSelectedFile().getPath()), ENCODE));
 					CSVFileUtil csvFileUtil = new CSVFileUtil(br);
 					String inString = "";
 					while ((inString = csvFileUtil.readLine()) != null) {
 						List<String> ling_list = csvFileUtil.fromCSVLinetoArray(inString);
-						file_lists.add(ling_list);
 						if(max_num > ling_list.size()) {
 							max_num = ling_list.size();
+							if(file_datas != null) {
+								file_datas.truncateCols(max_num);
+							}
 						} else if(max_num < ling_list.size()) {
 							int rs = JOptionPane.showConfirmDialog(innerPanel, "传入数据列数值不一致，是否继续？","提示", JOptionPane.YES_OPTION);
 							if (rs == JOptionPane.NO_OPTION) {
@@ -676,22 +704,25 @@ public class MainFrame extends JFrame implements ActionListener {
 							JOptionPane.showMessageDialog(null, "文件列数至少为两列！", "提醒", JOptionPane.ERROR_MESSAGE);
 							cancel = true; break;
 						}
+						if(file_datas == null) {
+							file_datas = new DataMatrix(0, max_num);
+							row = new double[max_num];
+						}
+						for (int i = 0; i < max_num; i++) {
+							row[i] = CommUtils.null2Double(ling_list.get(i));
+						}
+						file_datas.addRow(row);
 					}
 					br.close();
 					
 					// 预处理
 					if(!cancel) {
-						datas = new ArrayList<double[]>();
-						datas_label = new ArrayList<Integer>();				// 初始化分类均为0类;
-						if(file_lists != null && file_lists.size() > 0) {
-							for (List<String> list : file_lists) {
-								double[] data = new double[max_num];
-								for (int i = 0; i < max_num; i++) {
-									data[i] = CommUtils.null2Double(list.get(i));
-								}
-								datas.add(data);
-								datas_label.add(0);
-							}
+						if(file_datas != null && file_datas.rows > 0) {
+							file_datas.trimToSize();
+							datas = file_datas;
+							last_result = null;
+							FcmWorkspace.clearPool();			// 换了数据，池中按旧数据规模分配的工作区不再需要
+							datas_label = new LabelArray(datas.rows, clusternum);		// 初始化分类均为0类;
 							startbtn.setEnabled(true);
 							stopbtn.setEnabled(false);
 							
@@ -715,7 +746,7 @@ public class MainFrame extends JFrame implements ActionListener {
 		private static final long serialVersionUID = 1L;
 
 		public void actionPerformed(ActionEvent e) {
-			if(datas == null || datas.size() < 1 || datas_label == null || datas_label.size() < 1) {
+			if(datas == null || datas.rows < 1 || datas_label == null || datas_label.size < 1) {
 				JOptionPane.showMessageDialog(null, "还没有运行结果！", "提醒", JOptionPane.ERROR_MESSAGE);
 				return;
 			}
@@ -754,7 +785,7 @@ public class MainFrame extends JFrame implements ActionListener {
 		private static final long serialVersionUID = 1L;
 
 		public void actionPerformed(ActionEvent e) {
-			if(datas == null || datas.size() < 1 || datas_label == null || datas_label.size() < 1) {
+			if(datas == null || datas.rows < 1 || datas_label == null || datas_label.size < 1) {
 				JOptionPane.showMessageDialog(null, "还没有运行结果！", "提醒", JOptionPane.ERROR_MESSAGE);
 				return;
 			}
@@ -791,19 +822,18 @@ public class MainFrame extends JFrame implements ActionListener {
 	/**
 	 * 保存运行结果
 	 */
-	private void saveResult(File file, List<double[]> datas, List<Integer> datas_label) {
-		if(file == null || datas == null || datas.size() < 1 || datas_label == null || datas_label.size() < 1) {
+	private void saveResult(File file, DataMatrix datas, LabelArray datas_label) {
+		if(file == null || datas == null || datas.rows < 1 || datas_label == null || datas_label.size < 1) {
 			return;
 		}
 		BufferedWriter csvFileOutputStream = null;
 		try {
 			csvFileOutputStream = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 1024);
-			for (int i = 0; i < datas.size(); i++) {
-				double[] ds = datas.get(i);
-				int length = ds.length + 1;
+			for (int i = 0; i < datas.rows; i++) {
+				int length = datas.cols + 1;
 				String[] strArray = new String[length];
-				for (int j = 0; j < ds.length; j++) {
-					strArray[j] = ds[j]+"";
+				for (int j = 0; j < datas.cols; j++) {
+					strArray[j] = datas.get(i, j)+"";
 				}
 				strArray[length-1] = datas_label.get(i)+"";
 				String str = CSVFileUtil.toCSVLine(strArray);
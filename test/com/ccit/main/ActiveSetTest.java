@@ -0,0 +1,75 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import com.ccit.bean.DataMatrix;
+import com.ccit.bean.FcmOptions;
+import com.ccit.bean.FcmResult;
+import com.ccit.bean.LabelArray;
+
+/**
+ * 活动集迭代：迭代次数用完时每个点都有标签，结果与不用活动集时一致
+ */
+public class ActiveSetTest extends TestCase {
+    private static final int NUM_DATA = 20000;
+    private static final int CLUSTERNUM = 8;
+
+    private static DataMatrix data() {
+        Random random = new Random(1);
+        DataMatrix datas = new DataMatrix(NUM_DATA, 2);
+        for (int i = 0; i < NUM_DATA; i++) {
+            int g = random.nextInt(CLUSTERNUM);
+            datas.set(i, 0, (g % 4) * 10 + random.nextGaussian());
+            datas.set(i, 1, (g / 4) * 10 + random.nextGaussian());
+        }
+        return datas;
+    }
+
+    private static FcmOptions options(double activeTol, int threads) {
+        FcmOptions opt = new FcmOptions();
+        opt.random = new Random(2);
+        opt.activeTol = activeTol;
+        opt.threads = threads;
+        opt.stop.absJ = 0;
+        return opt;
+    }
+
+    /** 最后一次迭代即使轮到部分扫描，冻结的点也要写入标签 */
+    public void testLabelsWhenIterationsRunOut() {
+        DataMatrix datas = data();
+        for (int threads = 1; threads <= 3; threads += 2) {
+            for (int iternum = 2; iternum <= 8; iternum++) {
+                LabelArray labels = new LabelArray(NUM_DATA, CLUSTERNUM);
+                FCMAlgorithm.fcm(datas, labels, null, CLUSTERNUM, iternum, 2, options(1e-3, threads));
+                for (int i = 0; i < NUM_DATA; i++) {
+                    assertTrue("threads=" + threads + " iternum=" + iternum + " i=" + i, labels.get(i) > 0);
+                }
+            }
+        }
+    }
+
+    /** 收敛后的结果与完整迭代一致 */
+    public void testMatchesFullIteration() {
+        DataMatrix datas = data();
+        FcmOptions full = options(0, 1);
+        full.layout = FcmOptions.LAYOUT_POINT;
+        full.stop.absJ = 1e-6;
+        LabelArray expected = new LabelArray(NUM_DATA, CLUSTERNUM);
+        FcmResult a = FCMAlgorithm.fcm(datas, expected, null, CLUSTERNUM, 300, 2, full);
+        for (int threads = 1; threads <= 3; threads += 2) {
+            FcmOptions active = options(1e-4, threads);
+            active.stop.absJ = 1e-6;
+            LabelArray labels = new LabelArray(NUM_DATA, CLUSTERNUM);
+            FcmResult b = FCMAlgorithm.fcm(datas, labels, null, CLUSTERNUM, 300, 2, active);
+            assertEquals(a.J, b.J, 1e-9 * a.J);
+            for (int i = 0; i < NUM_DATA; i++) {
+                assertEquals(expected.get(i), labels.get(i));
+            }
+        }
+    }
+}
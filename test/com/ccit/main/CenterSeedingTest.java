@@ -0,0 +1,99 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import com.ccit.bean.DataMatrix;
+import com.ccit.bean.FcmOptions;
+
+/**
+ * 直接从中心开始的变体（小批量、流式）的初始中心：热启动、FCM++、随机时不重复取点
+ */
+public class CenterSeedingTest extends TestCase {
+    private static final int NUM_DATA = 1000;
+
+    /** 交替的两个点 [0,0]、[1,0] */
+    private static DataMatrix data() {
+        DataMatrix datas = new DataMatrix(NUM_DATA, 2);
+        for (int i = 0; i < NUM_DATA; i++) {
+            datas.set(i, 0, i % 2);
+        }
+        return datas;
+    }
+
+    private static boolean covers(double[][] c) {
+        boolean zero = false;
+        boolean one = false;
+        for (int j = 0; j < c.length; j++) {
+            zero |= c[j][0] == 0;
+            one |= c[j][0] == 1;
+        }
+        return zero && one;
+    }
+
+    public void testPlusPlusCoversDistinctPoints() {
+        DataMatrix datas = data();
+        for (int seed = 0; seed < 20; seed++) {
+            FcmOptions opt = new FcmOptions();
+            assertTrue("seed=" + seed, covers(FcmSeeding.seedCenters(datas, 3, opt, new Random(seed))));
+        }
+    }
+
+    public void testRandomPicksDistinctRows() {
+        DataMatrix datas = new DataMatrix(5, 1);
+        for (int i = 0; i < 5; i++) {
+            datas.set(i, 0, i);
+        }
+        FcmOptions opt = new FcmOptions();
+        opt.init = FcmOptions.INIT_RANDOM;
+        for (int seed = 0; seed < 20; seed++) {
+            double[][] c = FcmSeeding.seedCenters(datas, 5, opt, new Random(seed));
+            boolean[] seen = new boolean[5];
+            for (int j = 0; j < 5; j++) {
+                assertFalse("seed=" + seed, seen[(int) c[j][0]]);
+                seen[(int) c[j][0]] = true;
+            }
+        }
+    }
+
+    public void testWarmStart() {
+        FcmOptions opt = new FcmOptions();
+        opt.initCenters = new double[][] { { 0.25, 0 } };
+        double[][] c = FcmSeeding.seedCenters(data(), 2, opt, new Random(1));
+        assertEquals(0.25, c[0][0], 0);
+        assertEquals(1, c[1][0], 0);
+    }
+
+    public void testMiniBatchUsesSeeding() {
+        FcmOptions opt = new FcmOptions();
+        opt.random = new Random(3);
+        opt.initCenters = new double[][] { { 0, 0 }, { 1, 0 } };
+        opt.batchPasses = 0;
+        double[][] c = MiniBatchFCM.fcm(data(), null, null, 2, 2, opt).centers;
+        assertEquals(0, c[0][0], 0);
+        assertEquals(1, c[1][0], 0);
+    }
+
+    public void testStreamingUsesSeeding() throws Exception {
+        File input = File.createTempFile("stream", ".csv");
+        try {
+            FileWriter w = new FileWriter(input);
+            for (int i = 0; i < NUM_DATA; i++) {
+                w.write((i % 2) + ",0\n");
+            }
+            w.close();
+            FcmOptions opt = new FcmOptions();
+            opt.random = new Random(4);
+            double[][] c = StreamingFCM.fcm(input, null, null, 2, 0, 2, opt).centers;
+            assertTrue(covers(c));
+        } finally {
+            input.delete();
+        }
+    }
+}
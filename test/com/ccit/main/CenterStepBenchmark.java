@@ -0,0 +1,125 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import java.util.Random;
+
+import com.ccit.bean.DataMatrix;
+
+/**
+ * 中心累加步骤的基准：引擎的逐行累加（FCMAlgorithm.accumulateCenters，每行读一次，加到全部c×d个和上）
+ * 与按（点块×维度块）分块的累加对比，用来判断引擎是否需要分块。
+ * 不是单元测试，按需手动运行：
+ *   java -Xmx2g [--add-modules jdk.incubator.vector] -cp "bin:lib/*" com.ccit.main.CenterStepBenchmark [总元素数] [重复次数]
+ * 总元素数默认为2^23（数据64MB，大于常见的末级缓存）；每组(c, d)取n = 总元素数/d，隶属度占c·n·8字节。
+ * 输出两种方式各自最好一次的耗时（毫秒）和两者结果的最大差。
+ */
+public class CenterStepBenchmark {
+    private static final int[] CLUSTERS = { 8, 32 };
+    private static final int[] DIMS = { 2, 16, 128, 1024 };
+    private static final int POINT_TILE = 64;       // 每块的点数
+    private static final int DIM_TILE = 256;        // 每块的维数
+
+    public static void main(String[] args) {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 23;
+        int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        System.out.println("row kernel: " + RowKernel.ACTIVE.name() + ", elements: " + elements + ", repeats: " + repeats);
+        System.out.println("     c       d       n    rows(ms)   tiled(ms)    max|diff|");
+        FcmKernel kernel = FcmKernel.forExponent(2);
+        for (int c : CLUSTERS) {
+            for (int d : DIMS) {
+                int n = elements / d;
+                DataMatrix datas = data(n, d);
+                double[][] U = memberships(n, c);
+                double[][] num_rows = new double[c][d];
+                double[][] num_tiled = new double[c][d];
+                double[] den = new double[c];
+                long best_rows = Long.MAX_VALUE;
+                long best_tiled = Long.MAX_VALUE;
+                for (int r = 0; r < repeats; r++) {
+                    FCMAlgorithm.clearSums(num_rows, den, c, d);
+                    long t0 = System.nanoTime();
+                    FCMAlgorithm.accumulateCenters(datas, U, kernel, c, 0, n, num_rows, den);
+                    best_rows = Math.min(best_rows, System.nanoTime() - t0);
+
+                    FCMAlgorithm.clearSums(num_tiled, den, c, d);
+                    t0 = System.nanoTime();
+                    accumulateTiled(datas, U, kernel, c, n, num_tiled, den);
+                    best_tiled = Math.min(best_tiled, System.nanoTime() - t0);
+                }
+                System.out.println(String.format("%6d  %6d  %8d  %10.1f  %10.1f  %11.3e",
+                        c, d, n, best_rows / 1e6, best_tiled / 1e6, maxDiff(num_rows, num_tiled)));
+            }
+        }
+    }
+
+    /**
+     * 分块累加：每次取POINT_TILE个点、DIM_TILE维，使这一块的数据和c个和的对应片段留在缓存中
+     */
+    static void accumulateTiled(DataMatrix datas, double[][] U, FcmKernel kernel, int clusternum,
+            int num_data, double[][] num, double[] den) {
+        double[] values = datas.values;
+        int rs = datas.rowStride;
+        int num_d = datas.cols;
+        RowKernel rows = RowKernel.ACTIVE;
+        double[] w = new double[POINT_TILE * clusternum];
+        double[] part = new double[DIM_TILE];
+        for (int i0 = 0; i0 < num_data; i0 += POINT_TILE) {
+            int i1 = Math.min(i0 + POINT_TILE, num_data);
+            for (int i = i0; i < i1; i++) {
+                for (int j = 0; j < clusternum; j++) {
+                    double w_ij = kernel.um(U[j][i]);
+                    w[(i - i0) * clusternum + j] = w_ij;
+                    den[j] += w_ij;
+                }
+            }
+            for (int k0 = 0; k0 < num_d; k0 += DIM_TILE) {
+                int len = Math.min(DIM_TILE, num_d - k0);
+                for (int j = 0; j < clusternum; j++) {
+                    double[] num_j = num[j];
+                    System.arraycopy(num_j, k0, part, 0, len);
+                    for (int i = i0; i < i1; i++) {
+                        rows.axpy(w[(i - i0) * clusternum + j], values, i * rs + k0, 1, part, len);
+                    }
+                    System.arraycopy(part, 0, num_j, k0, len);
+                }
+            }
+        }
+    }
+
+    private static DataMatrix data(int n, int d) {
+        Random random = new Random(1);
+        DataMatrix datas = new DataMatrix(n, d);
+        for (int i = 0; i < datas.values.length; i++) {
+            datas.values[i] = random.nextGaussian();
+        }
+        return datas;
+    }
+
+    private static double[][] memberships(int n, int c) {
+        Random random = new Random(2);
+        double[][] U = new double[c][n];
+        for (int i = 0; i < n; i++) {
+            double sum = 0;
+            for (int j = 0; j < c; j++) {
+                U[j][i] = random.nextDouble();
+                sum += U[j][i];
+            }
+            for (int j = 0; j < c; j++) {
+                U[j][i] /= sum;
+            }
+        }
+        return U;
+    }
+
+    private static double maxDiff(double[][] a, double[][] b) {
+        double max = 0;
+        for (int j = 0; j < a.length; j++) {
+            for (int k = 0; k < a[j].length; k++) {
+                max = Math.max(max, Math.abs(a[j][k] - b[j][k]));
+            }
+        }
+        return max;
+    }
+}
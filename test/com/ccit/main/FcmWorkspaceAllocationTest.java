@@ -0,0 +1,141 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.ccit.bean.DataMatrix;
+import com.ccit.bean.FcmOptions;
+
+/**
+ * 预热之后，取用工作区的OneSteo在各种存储方式下每次迭代都不分配内存。
+ * 多线程时例外：调用线程在ForkJoinPool.invoke中等待时由JDK分配等待节点，每次迭代几十字节，与数据规模无关；
+ * 这部分只检查不超过PARALLEL_BYTES，且各工作线程不分配
+ */
+public class FcmWorkspaceAllocationTest extends TestCase {
+    private static final int NUM_DATA = 5000;
+    private static final int NUM_D = 2;
+    private static final int CLUSTERNUM = 4;
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 200;
+    private static final long PARALLEL_BYTES = 256;        // 多线程时每次迭代允许的分配（JDK的等待节点）
+
+    private static DataMatrix data() {
+        Random random = new Random(1);
+        DataMatrix datas = new DataMatrix(NUM_DATA, NUM_D);
+        for (int i = 0; i < NUM_DATA; i++) {
+            for (int k = 0; k < NUM_D; k++) {
+                datas.set(i, k, (i % CLUSTERNUM) * 10 + random.nextGaussian());
+            }
+        }
+        return datas;
+    }
+
+    private static FcmOptions options() {
+        FcmOptions opt = new FcmOptions();
+        opt.random = new Random(2);
+        opt.layout = FcmOptions.LAYOUT_CLUSTER;
+        return opt;
+    }
+
+    /** 在opt下连续迭代，返回预热之后ITERATIONS次迭代本线程分配的字节数 */
+    private static long allocated(FcmOptions opt) {
+        return allocated(opt, false)[0];
+    }
+
+    /**
+     * 在opt下连续迭代，统计预热之后ITERATIONS次迭代各线程分配的字节数
+     * @param workers   为true时同时统计其他线程（并行引擎的工作线程）
+     * @return          [0]为本线程，[1]为其他线程合计
+     */
+    private static long[] allocated(FcmOptions opt, boolean workers) {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+        DataMatrix datas = data().toPrecision(opt.single);
+        FcmWorkspace ws = FcmWorkspace.acquire(NUM_DATA, NUM_D, CLUSTERNUM, WARMUP + ITERATIONS, opt);
+        try {
+            ws.kernel = FcmKernel.forExponent(2);
+            FcmSeeding.initMemberships(datas, ws, opt);
+            for (int iter_i = 0; iter_i < WARMUP; iter_i++) {
+                FCMAlgorithm.OneSteo(datas, null, ws, iter_i, opt);
+            }
+            long id = Thread.currentThread().getId();
+            long[] ids = new long[0];        // 其他线程；统计用的数组在本线程计数的区间之外分配
+            if(workers) {       // 预热后工作线程已经启动
+                Set<Thread> threads = Thread.getAllStackTraces().keySet();
+                ids = new long[threads.size() - 1];
+                int t = 0;
+                for (Thread thread : threads) {
+                    if(thread.getId() != id) {
+                        ids[t++] = thread.getId();
+                    }
+                }
+            }
+            long[] others = bean.getThreadAllocatedBytes(ids);
+            long before = bean.getThreadAllocatedBytes(id);
+            for (int iter_i = WARMUP; iter_i < WARMUP + ITERATIONS; iter_i++) {
+                FCMAlgorithm.OneSteo(datas, null, ws, iter_i, opt);
+            }
+            long own = bean.getThreadAllocatedBytes(id) - before;
+            long[] bytes = {own, 0};
+            long[] after = bean.getThreadAllocatedBytes(ids);
+            for (int t = 0; t < ids.length; t++) {
+                bytes[1] += after[t] - others[t];
+            }
+            return bytes;
+        } finally {
+            FcmWorkspace.release(ws);
+            ws.shutdownParallel();
+        }
+    }
+
+    public void testClusterMajor() {
+        assertEquals(0, allocated(options()));
+    }
+
+    public void testFused() {
+        FcmOptions opt = options();
+        opt.fused = true;
+        assertEquals(0, allocated(opt));
+    }
+
+    public void testPointMajor() {
+        FcmOptions opt = options();
+        opt.layout = FcmOptions.LAYOUT_POINT;
+        assertEquals(0, allocated(opt));
+    }
+
+    public void testSingle() {
+        FcmOptions opt = options();
+        opt.single = true;
+        assertEquals(0, allocated(opt));
+    }
+
+    public void testSparse() {
+        FcmOptions opt = options();
+        opt.topK = 2;
+        assertEquals(0, allocated(opt));
+    }
+
+    public void testCentersOnly() {
+        FcmOptions opt = options();
+        opt.centersOnly = true;
+        assertEquals(0, allocated(opt));
+    }
+
+    public void testParallel() {
+        for (int fused = 0; fused < 2; fused++) {
+            FcmOptions opt = options();
+            opt.threads = 2;
+            opt.fused = fused == 1;
+            long[] bytes = allocated(opt, true);
+            assertEquals(0, bytes[1]);
+            assertTrue("calling thread allocated " + bytes[0], bytes[0] <= PARALLEL_BYTES * ITERATIONS);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ *
+ */
+package com.ccit.main;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import com.ccit.bean.CenterRooter;
+import com.ccit.bean.DataMatrix;
+import com.ccit.bean.FcmOptions;
+
+/**
+ * 倒数形式的隶属度与原公式（OneSteo(List...)、membershipsRatio）数值一致；点与中心重合时不出现NaN/Infinity
+ */
+public class ReciprocalMembershipTest extends TestCase {
+    private static final String[] FILES = {"files/data1cluster.csv", "files/data2cluster.csv", "files/data3cluster.csv"};
+    private static final int CLUSTERNUM = 3;
+    private static final int ITERNUM = 5;
+    private static final double TOL = 1e-10;
+
+    /** 读取附带的二维数据文件，每行"x,y" */
+    static List<double[]> load(String file) throws Exception {
+        List<double[]> datas = new ArrayList<double[]>();
+        BufferedReader br = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] s = line.trim().split(",");
+                if(s.length < 2) {
+                    continue;
+                }
+                datas.add(new double[] {Double.parseDouble(s[0]), Double.parseDouble(s[1])});
+            }
+        } finally {
+            br.close();
+        }
+        return datas;
+    }
+
+    static double[][] randomU(int clusternum, int num_data, long seed) {
+        Random random = new Random(seed);
+        double[][] U = new double[clusternum][num_data];
+        for (int i = 0; i < num_data; i++) {
+            double sum = 0;
+            for (int j = 0; j < clusternum; j++) {
+                U[j][i] = random.nextDouble();
+                sum += U[j][i];
+            }
+            for (int j = 0; j < clusternum; j++) {
+                U[j][i] /= sum;
+            }
+        }
+        return U;
+    }
+
+    static CenterRooter[] rooters(int clusternum) {
+        CenterRooter[] center_rooters = new CenterRooter[clusternum];
+        for (int j = 0; j < clusternum; j++) {
+            center_rooters[j] = new CenterRooter();
+        }
+        return center_rooters;
+    }
+
+    /** 从同一初始U出发，原OneSteo与倒数形式的引擎逐次迭代的U、J一致 */
+    public void testMatchesLegacyOneSteo() throws Exception {
+        for (String file : FILES) {
+            List<double[]> datas = load(file);
+            DataMatrix matrix = DataMatrix.fromRows(datas, DataMatrix.ROW_MAJOR);
+            int num_data = datas.size();
+            for (int m = 2; m <= 6; m++) {
+                double[][] U1 = randomU(CLUSTERNUM, num_data, m);
+                double[][] U2 = randomU(CLUSTERNUM, num_data, m);
+                double[][] c1 = new double[CLUSTERNUM][2];
+                double[][] c2 = new double[CLUSTERNUM][2];
+                double[][] D = new double[CLUSTERNUM][num_data];
+                double[] J1 = new double[ITERNUM];
+                double[] J2 = new double[ITERNUM];
+                FcmOptions opt = new FcmOptions();
+                opt.reciprocal = true;
+                opt.fused = false;
+                FcmKernel kernel = FcmKernel.forExponent(m);
+                for (int iter_i = 0; iter_i < ITERNUM; iter_i++) {
+                    FCMAlgorithm.OneSteo(datas, rooters(CLUSTERNUM), CLUSTERNUM, m, num_data, 2, U1, c1, J1, iter_i);
+                    FCMAlgorithm.OneSteo(matrix, null, CLUSTERNUM, kernel, num_data, 2, U2, c2, D, J2, iter_i, opt);
+                    String where = file + " m=" + m + " iter=" + iter_i;
+                    assertEquals(where, J1[iter_i], J2[iter_i], TOL * J1[iter_i]);
+                    for (int j = 0; j < CLUSTERNUM; j++) {
+                        for (int i = 0; i < num_data; i++) {
+                            assertEquals(where, U1[j][i], U2[j][i], TOL);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** 同一组距离下membershipsReciprocal与membershipsRatio一致 */
+    public void testMatchesRatio() throws Exception {
+        for (String file : FILES) {
+            DataMatrix matrix = DataMatrix.fromRows(load(file), DataMatrix.ROW_MAJOR);
+            int num_data = matrix.rows;
+            double[][] c = {{1, 1}, {5, 5}, {2, 8}};
+            double[][] D = new double[CLUSTERNUM][num_data];
+            FCMAlgorithm.distances(matrix, c, D, CLUSTERNUM, 0, num_data);
+            for (int m = 2; m <= 6; m++) {
+                FcmKernel kernel = FcmKernel.forExponent(m);
+                double[][] ratio = new double[CLUSTERNUM][num_data];
+                double[][] reciprocal = new double[CLUSTERNUM][num_data];
+                FCMAlgorithm.membershipsRatio(D, ratio, CLUSTERNUM, kernel, 0, num_data);
+                FCMAlgorithm.membershipsReciprocal(D, reciprocal, CLUSTERNUM, kernel, 0, num_data, new double[CLUSTERNUM]);
+                for (int j = 0; j < CLUSTERNUM; j++) {
+                    for (int i = 0; i < num_data; i++) {
+                        assertEquals(file + " m=" + m, ratio[j][i], reciprocal[j][i], TOL);
+                    }
+                }
+            }
+        }
+    }
+
+    /** 点与一个或多个中心重合时隶属度在这些中心间均分，不出现NaN/Infinity */
+    public void testZeroDistance() throws Exception {
+        List<double[]> datas = load(FILES[0]);
+        DataMatrix matrix = DataMatrix.fromRows(datas, DataMatrix.ROW_MAJOR);
+        int num_data = datas.size();
+        // 前两个中心都取第0个点，第三个中心取第1个点
+        double[][] c = {datas.get(0).clone(), datas.get(0).clone(), datas.get(1).clone()};
+        double[][] D = new double[CLUSTERNUM][num_data];
+        FCMAlgorithm.distances(matrix, c, D, CLUSTERNUM, 0, num_data);
+        for (int m = 2; m <= 6; m++) {
+            FcmKernel kernel = FcmKernel.forExponent(m);
+            double[][] U = new double[CLUSTERNUM][num_data];
+            FCMAlgorithm.membershipsReciprocal(D, U, CLUSTERNUM, kernel, 0, num_data, new double[CLUSTERNUM]);
+            for (int i = 0; i < num_data; i++) {
+                double sum = 0;
+                for (int j = 0; j < CLUSTERNUM; j++) {
+                    assertFalse("m=" + m + " i=" + i, Double.isNaN(U[j][i]) || Double.isInfinite(U[j][i]));
+                    sum += U[j][i];
+                }
+                assertEquals(1, sum, TOL);
+            }
+            assertEquals(0.5, U[0][0], 0);
+            assertEquals(0.5, U[1][0], 0);
+            assertEquals(0.0, U[2][0], 0);
+            assertEquals(1.0, U[2][1], 0);
+
+            double[] u = new double[CLUSTERNUM];
+            double[] d = {0, 4, 9};
+            FCMAlgorithm.membershipPoint(d, u, CLUSTERNUM, kernel, true);
+            assertEquals(1.0, u[0], 0);
+            assertEquals(0.0, u[1], 0);
+            assertEquals(0.0, u[2], 0);
+        }
+    }
+}